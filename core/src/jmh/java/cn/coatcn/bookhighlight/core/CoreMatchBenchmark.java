@@ -0,0 +1,53 @@
+package cn.coatcn.bookhighlight.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 纯 Java 核心的吞吐量：一次调用评估 10 万个合成物品栈，报告的是每个物品栈的操作数。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoreMatchBenchmark {
+
+    private static final int STACKS = 100_000;
+
+    @Param({"1", "10", "200"})
+    public int targets;
+
+    private TargetMatcher matcher;
+    private List<StackModel> stacks;
+
+    @Setup
+    public void setup() {
+        matcher = new TargetMatcher(SyntheticStacks.targets(targets), SyntheticStacks.index());
+        stacks = SyntheticStacks.stacks(STACKS, 42L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STACKS)
+    public int matchAll() {
+        int n = 0;
+        for (StackModel stack : stacks) {
+            if (matcher.matches(stack, LoreDecoder.PLAIN)) n++;
+        }
+        return n;
+    }
+}
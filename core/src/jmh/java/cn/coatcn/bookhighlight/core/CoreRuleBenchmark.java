@@ -0,0 +1,53 @@
+package cn.coatcn.bookhighlight.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则评估的吞吐量：随机生成的规则（等级区间、多条件组合），一次调用评估 10 万个合成物品栈。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoreRuleBenchmark {
+
+    private static final int STACKS = 100_000;
+
+    @Param({"10", "100", "500"})
+    public int rules;
+
+    private TargetMatcher matcher;
+    private List<StackModel> stacks;
+
+    @Setup
+    public void setup() {
+        matcher = new TargetMatcher(SyntheticStacks.rules(rules, 7L), SyntheticStacks.index());
+        stacks = SyntheticStacks.stacks(STACKS, 42L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STACKS)
+    public int evaluateAll() {
+        int n = 0;
+        for (StackModel stack : stacks) {
+            n += matcher.evaluate(stack, LoreDecoder.PLAIN);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,149 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 多模式匹配（Aho-Corasick 自动机）：
+ * 1）由目标附魔名一次性构建，之后只读，可在多线程间共享
+ * 2）对一行文本只扫描一遍，即可判断其中是否包含任意目标名（如 “§7锋利 V (稀有)” 包含 “锋利”）
+ * 3）每个状态的转移用有序 char 数组 + 二分查找存储（见 SortedEdgeTable），匹配过程不分配对象
+ */
+public final class AhoCorasick {
+
+    public static final AhoCorasick EMPTY = new AhoCorasick(List.of());
+
+    private final char[][] keys;
+    private final int[][] next;
+    private final int[] fail;
+    // 该状态（含沿失败链可达的状态）匹配到的模式下标，-1 表示无
+    private final int[] output;
+    // 恰好在该状态结束的模式下标，-1 表示无
+    private final int[] own;
+    // 失败链上下一个有自身模式的状态，-1 表示没有；用来枚举同一位置结束的全部模式
+    private final int[] outputLink;
+    private final List<String> patterns;
+
+    public AhoCorasick(Collection<String> patterns) {
+        List<String> list = new ArrayList<>();
+        for (String p : patterns) {
+            if (p != null && !p.isEmpty()) {
+                list.add(p);
+            }
+        }
+        this.patterns = List.copyOf(list);
+
+        // 1）构建 trie
+        SortedEdgeTable edges = new SortedEdgeTable();
+        int[] ends = new int[this.patterns.size()];
+        for (int pi = 0; pi < ends.length; pi++) {
+            ends[pi] = edges.insert(this.patterns.get(pi));
+        }
+
+        int n = edges.size();
+        this.keys = edges.keys();
+        this.next = edges.next();
+        this.output = new int[n];
+        this.own = new int[n];
+        this.outputLink = new int[n];
+        Arrays.fill(output, -1);
+        for (int pi = 0; pi < ends.length; pi++) {
+            if (output[ends[pi]] < 0) {
+                output[ends[pi]] = pi;
+            }
+        }
+        System.arraycopy(output, 0, own, 0, n);
+        outputLink[0] = -1;
+
+        // 2）按层次遍历计算失败指针，并把失败链上的输出合并到当前状态
+        this.fail = new int[n];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : next[0]) {
+            fail[child] = 0;
+            outputLink[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int k = 0; k < keys[state].length; k++) {
+                char c = keys[state][k];
+                int child = next[state][k];
+                int f = fail[state];
+                int to;
+                while ((to = SortedEdgeTable.find(keys[f], next[f], c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = to >= 0 && to != child ? to : 0;
+                int fs = fail[child];
+                outputLink[child] = fs == 0 ? -1 : own[fs] >= 0 ? fs : outputLink[fs];
+                if (output[child] < 0) {
+                    output[child] = output[fail[child]];
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 从 state 读入字符 c 后的新状态
+     */
+    public int step(int state, char c) {
+        int to;
+        while ((to = SortedEdgeTable.find(keys[state], next[state], c)) < 0 && state != 0) {
+            state = fail[state];
+        }
+        return Math.max(to, 0);
+    }
+
+    /**
+     * 到达该状态时命中的模式下标，-1 表示没有命中
+     */
+    public int outputOf(int state) {
+        return output[state];
+    }
+
+    /**
+     * 恰好在该状态结束的模式下标，-1 表示没有（不含失败链上的更短模式）
+     */
+    public int ownOutputOf(int state) {
+        return own[state];
+    }
+
+    /**
+     * 失败链上下一个有自身模式的状态，-1 表示没有。
+     * 从 state 出发依次取 ownOutputOf / nextOutputState，即可枚举在当前位置结束的全部模式。
+     */
+    public int nextOutputState(int state) {
+        return outputLink[state];
+    }
+
+    /**
+     * 文本中第一个被命中的模式下标，-1 表示不包含任何模式
+     */
+    public int firstMatch(CharSequence text) {
+        if (patterns.isEmpty() || text == null) return -1;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            if (output[state] >= 0) {
+                return output[state];
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsAny(CharSequence text) {
+        return firstMatch(text) >= 0;
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+}
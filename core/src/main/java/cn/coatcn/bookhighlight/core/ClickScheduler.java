@@ -0,0 +1,152 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * 限速的批量点击调度（“收取目标附魔书”）：
+ * 1）待搬的格子排成队列，每个 tick 调用一次 tick，按令牌桶限速：每秒 clicksPerSecond 次，
+ *    一个 tick 内最多 maxClicksPerTick 次，积攒的令牌也不超过这个数，避免被反作弊插件当成连点
+ * 2）点击前再确认一次格子内容（shouldMove），服务端中途更新过、已不是目标的格子直接跳过；
+ *    背包放不下时停止，状态为 INVENTORY_FULL
+ * 3）点过的格子等待服务端回应：RETRY_NANOS 之后仍是目标（点击被拒绝或没有生效）就重新排队，
+ *    每格最多 MAX_ATTEMPTS 次；等待期间 offer 同一格会被忽略，不会重复点击
+ * 4）运行中可以继续 offer 新出现的目标格子；队列与等待集合都空了、且调用方不再有待定的格子（tick 的 more）
+ *    即为 DONE，界面关闭为 CLOSED
+ *
+ * 注：不做同步，tick / offer 须在同一线程调用；时间由调用方传入，便于脱离游戏校验。
+ */
+public final class ClickScheduler {
+
+    public static final long RETRY_NANOS = 500_000_000L;
+    public static final int MAX_ATTEMPTS = 2;
+
+    public enum Status { RUNNING, DONE, INVENTORY_FULL, CLOSED }
+
+    private final ClickTarget target;
+    private final double clicksPerNano;
+    private final int maxClicksPerTick;
+    private final ArrayDeque<Integer> queue = new ArrayDeque<>();
+    private final BitSet queued = new BitSet();
+    private final BitSet awaiting = new BitSet();
+    private final long[] clickedAt;
+    private final int[] attempts;
+
+    private Status status = Status.RUNNING;
+    private double tokens;
+    private long lastTick = Long.MIN_VALUE;
+    private int clicks;
+
+    /**
+     * @param slotCount        界面的格子总数（格子下标的上界）
+     * @param clicksPerSecond  平均每秒最多点击次数
+     * @param maxClicksPerTick 一个 tick 内最多点击次数（同时也是令牌桶容量）
+     */
+    public ClickScheduler(ClickTarget target, int slotCount, double clicksPerSecond, int maxClicksPerTick) {
+        this.target = target;
+        this.clicksPerNano = Math.max(0.0, clicksPerSecond) / 1_000_000_000.0;
+        this.maxClicksPerTick = Math.max(1, maxClicksPerTick);
+        this.clickedAt = new long[slotCount];
+        this.attempts = new int[slotCount];
+        // 第一次 tick 就能点出一批
+        this.tokens = this.maxClicksPerTick;
+    }
+
+    /**
+     * 加入一个待搬的格子；已在队列中、正在等待服务端回应、次数用完或调度已结束时忽略
+     */
+    public void offer(int slot) {
+        if (status != Status.RUNNING || slot < 0 || slot >= attempts.length) return;
+        if (queued.get(slot) || awaiting.get(slot) || attempts[slot] >= MAX_ATTEMPTS) return;
+        queued.set(slot);
+        queue.add(slot);
+    }
+
+    /**
+     * 推进一个 tick，调用方已没有待定的格子；见 {@link #tick(long, boolean)}
+     */
+    public Status tick(long nowNanos) {
+        return tick(nowNanos, false);
+    }
+
+    /**
+     * 推进一个 tick：补充令牌、检查等待中的格子，然后在限额内点击；返回当前状态
+     *
+     * @param more 调用方是否还有尚未判定的格子（例如高亮还没算完），之后可能再 offer；为 true 时队列空了也不结束
+     */
+    public Status tick(long nowNanos, boolean more) {
+        if (status != Status.RUNNING) return status;
+        if (!target.isOpen()) {
+            return status = Status.CLOSED;
+        }
+        if (lastTick != Long.MIN_VALUE) {
+            tokens = Math.min(maxClicksPerTick, tokens + (nowNanos - lastTick) * clicksPerNano);
+        }
+        lastTick = nowNanos;
+
+        // 1）等待中的格子：已经搬走的完成；超时仍在的重新排队（次数用完就放弃）
+        for (int slot = awaiting.nextSetBit(0); slot >= 0; slot = awaiting.nextSetBit(slot + 1)) {
+            if (!target.shouldMove(slot)) {
+                awaiting.clear(slot);
+            } else if (nowNanos - clickedAt[slot] >= RETRY_NANOS) {
+                awaiting.clear(slot);
+                offer(slot);
+            }
+        }
+
+        // 2）限额内点击
+        int n = 0;
+        while (n < maxClicksPerTick && tokens >= 1.0 && !queue.isEmpty()) {
+            int slot = queue.peek();
+            if (!target.shouldMove(slot)) {
+                queue.poll();
+                queued.clear(slot);
+                continue;
+            }
+            if (!target.hasRoomFor(slot)) {
+                return status = Status.INVENTORY_FULL;
+            }
+            queue.poll();
+            queued.clear(slot);
+            target.quickMove(slot);
+            clickedAt[slot] = nowNanos;
+            attempts[slot]++;
+            awaiting.set(slot);
+            tokens -= 1.0;
+            clicks++;
+            n++;
+        }
+
+        if (!more && queue.isEmpty() && awaiting.isEmpty()) {
+            status = Status.DONE;
+        }
+        return status;
+    }
+
+    /**
+     * 主动停止（例如再次按下按键）
+     */
+    public void cancel() {
+        if (status == Status.RUNNING) {
+            status = Status.CLOSED;
+        }
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * 已发送的点击次数
+     */
+    public int getClicks() {
+        return clicks;
+    }
+
+    /**
+     * 还在队列中或等待服务端回应的格子数
+     */
+    public int getRemaining() {
+        return queue.size() + awaiting.cardinality();
+    }
+}
@@ -0,0 +1,28 @@
+package cn.coatcn.bookhighlight.core;
+
+/**
+ * ClickScheduler 操作的界面（格子以 ScreenHandler.slots 的下标表示）。
+ * 游戏内由打开的容器界面实现；脱离游戏时可用模拟实现校验调度逻辑。
+ */
+public interface ClickTarget {
+
+    /**
+     * 界面是否仍然打开（关闭后调度立即结束）
+     */
+    boolean isOpen();
+
+    /**
+     * 该格当前是否仍是需要搬走的物品：被服务端更新成别的物品、或已被拿走时返回 false
+     */
+    boolean shouldMove(int slot);
+
+    /**
+     * 玩家背包是否还放得下该格的物品
+     */
+    boolean hasRoomFor(int slot);
+
+    /**
+     * 发送一次快速移动（shift 点击）
+     */
+    void quickMove(int slot);
+}
@@ -0,0 +1,87 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 附魔名称索引（不可变）：
+ * 1）中文附魔名的规范键（见 NameNormalizer）-> 附魔注册表 raw id（来自 zh_cn 语言文件的反向映射，同名可能对应多个附魔）
+ * 2）NBT 中的附魔 id 字符串（如 "minecraft:sharpness" 或 "sharpness"）-> raw id
+ * 3）名称另存一张开放寻址表（与 String.hashCode 相同的散列），可直接用 NameNormalizer.normalizeInto
+ *    的缓冲区查找，不必先转成 String
+ *
+ * 由客户端在资源/语言重载时重建，再交给 ConfigManager 重新生成目标快照；脱离游戏时也可直接用字符串构建。
+ */
+public final class EnchantNameIndex {
+
+    public static final EnchantNameIndex EMPTY = new EnchantNameIndex(Collections.emptyMap(), Collections.emptyMap());
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final Map<String, int[]> rawIdsByName;
+    private final Map<String, Integer> rawIdsByKey;
+    // 名称的开放寻址表（线性探测，容量为 2 的幂），槽位为 null 表示空
+    private final String[] nameSlots;
+    private final int[][] idSlots;
+
+    public EnchantNameIndex(Map<String, int[]> rawIdsByName, Map<String, Integer> rawIdsByKey) {
+        this.rawIdsByName = Collections.unmodifiableMap(new HashMap<>(rawIdsByName));
+        this.rawIdsByKey = Collections.unmodifiableMap(new HashMap<>(rawIdsByKey));
+        int capacity = Integer.highestOneBit(Math.max(1, this.rawIdsByName.size()) * 2 - 1) << 1;
+        this.nameSlots = new String[capacity];
+        this.idSlots = new int[capacity][];
+        for (Map.Entry<String, int[]> e : this.rawIdsByName.entrySet()) {
+            int slot = e.getKey().hashCode() & (capacity - 1);
+            while (nameSlots[slot] != null) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            nameSlots[slot] = e.getKey();
+            idSlots[slot] = e.getValue();
+        }
+    }
+
+    /**
+     * 规范键对应的 raw id；未知名称（如服务端自定义附魔）返回空数组。
+     * 键可以是 NameNormalizer.normalizeInto 返回的缓冲区，查找不分配对象。
+     */
+    public int[] resolve(CharSequence nameKey) {
+        if (nameKey == null) return NO_IDS;
+        int mask = nameSlots.length - 1;
+        for (int slot = hash(nameKey) & mask; nameSlots[slot] != null; slot = (slot + 1) & mask) {
+            if (NameNormalizer.contentEquals(nameKey, nameSlots[slot])) {
+                return idSlots[slot];
+            }
+        }
+        return NO_IDS;
+    }
+
+    // 与 String.hashCode 相同，对任意 CharSequence 计算且不分配
+    private static int hash(CharSequence s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * NBT 中附魔 id 字符串对应的 raw id；未注册返回 -1。只做一次查表与拆箱，不分配对象。
+     */
+    public int rawIdOf(String key) {
+        Integer id = key != null ? rawIdsByKey.get(key) : null;
+        return id != null ? id : -1;
+    }
+
+    public Map<String, int[]> getNames() {
+        return rawIdsByName;
+    }
+
+    public Map<String, Integer> getKeys() {
+        return rawIdsByKey;
+    }
+
+    public boolean isEmpty() {
+        return rawIdsByKey.isEmpty();
+    }
+}
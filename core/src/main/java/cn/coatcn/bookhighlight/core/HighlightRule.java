@@ -0,0 +1,179 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 一条高亮规则（不可变）：
+ * 1）若干条件同时满足才算命中，例如“耐久 III + 经验修补”
+ * 2）每个条件是一个附魔名称（中文名，按 NameNormalizer 规范化后比较），可选等级下限 / 上限
+ * 3）命中后使用规则自己的颜色；color 为 NO_COLOR 时沿用全局高亮颜色
+ *
+ * 规则按列表顺序决定优先级：同一本书命中多条规则时，取排在最前面的一条。
+ */
+public final class HighlightRule {
+
+    public static final int NO_COLOR = 0;
+    public static final int ANY_LEVEL_MIN = 0;
+    public static final int ANY_LEVEL_MAX = Integer.MAX_VALUE;
+    /** 单条规则最多的条件数（条件满足情况用一个 long 位图记录） */
+    public static final int MAX_CONDITIONS = 64;
+
+    private final String name;
+    private final int color;
+    private final List<Condition> conditions;
+
+    public HighlightRule(String name, int color, List<Condition> conditions) {
+        if (conditions.isEmpty() || conditions.size() > MAX_CONDITIONS) {
+            throw new IllegalArgumentException("规则的条件数应在 1~" + MAX_CONDITIONS + " 之间：" + conditions.size());
+        }
+        this.name = name != null ? name : "";
+        this.color = color;
+        this.conditions = Collections.unmodifiableList(List.copyOf(conditions));
+    }
+
+    /**
+     * 只有一个名称、不限等级、使用全局颜色的规则（即原来的“目标附魔”）
+     */
+    public static HighlightRule ofName(String enchant) {
+        return new HighlightRule(enchant, NO_COLOR, List.of(Condition.any(enchant)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HighlightRule other)) return false;
+        return color == other.color && name.equals(other.name) && conditions.equals(other.conditions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, color, conditions);
+    }
+
+    @Override
+    public String toString() {
+        return "HighlightRule{" + name + ", color=" + Integer.toHexString(color) + ", " + conditions + "}";
+    }
+
+    /**
+     * 规则中的一个条件：附魔名称 + 等级区间 [minLevel, maxLevel]
+     */
+    public static final class Condition {
+
+        private final String enchant;
+        private final int minLevel;
+        private final int maxLevel;
+
+        public Condition(String enchant, int minLevel, int maxLevel) {
+            this.enchant = Objects.requireNonNull(enchant);
+            this.minLevel = Math.max(ANY_LEVEL_MIN, minLevel);
+            this.maxLevel = maxLevel;
+        }
+
+        public static Condition any(String enchant) {
+            return new Condition(enchant, ANY_LEVEL_MIN, ANY_LEVEL_MAX);
+        }
+
+        public static Condition atLeast(String enchant, int level) {
+            return new Condition(enchant, level, ANY_LEVEL_MAX);
+        }
+
+        public static Condition exactly(String enchant, int level) {
+            return new Condition(enchant, level, level);
+        }
+
+        public String getEnchant() {
+            return enchant;
+        }
+
+        public int getMinLevel() {
+            return minLevel;
+        }
+
+        public int getMaxLevel() {
+            return maxLevel;
+        }
+
+        public boolean hasLevelConstraint() {
+            return minLevel != ANY_LEVEL_MIN || maxLevel != ANY_LEVEL_MAX;
+        }
+
+        public boolean acceptsLevel(int level) {
+            return level >= minLevel && level <= maxLevel;
+        }
+
+        /**
+         * 界面上输入的等级写法：
+         * 1）空白：不限等级
+         * 2）"3"：恰好 3 级；"3+"：至少 3 级；"2-4"：2~4 级（含两端）
+         * 只接受阿拉伯数字；写法无效时返回 null
+         */
+        public static Condition parse(String enchant, String spec) {
+            String s = spec == null ? "" : spec.trim();
+            if (s.isEmpty()) return any(enchant);
+            try {
+                if (s.endsWith("+")) {
+                    return atLeast(enchant, parseLevel(s.substring(0, s.length() - 1)));
+                }
+                int dash = s.indexOf('-', 1);
+                if (dash > 0) {
+                    int min = parseLevel(s.substring(0, dash));
+                    int max = parseLevel(s.substring(dash + 1));
+                    return min <= max ? new Condition(enchant, min, max) : null;
+                }
+                return exactly(enchant, parseLevel(s));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static int parseLevel(String s) {
+            int level = Integer.parseInt(s.trim());
+            if (level < 0) throw new NumberFormatException(s);
+            return level;
+        }
+
+        /**
+         * parse 的逆操作：不限等级为空串
+         */
+        public String levelSpec() {
+            if (!hasLevelConstraint()) return "";
+            if (minLevel == maxLevel) return Integer.toString(minLevel);
+            if (maxLevel == ANY_LEVEL_MAX) return minLevel + "+";
+            return minLevel + "-" + maxLevel;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Condition other)) return false;
+            return minLevel == other.minLevel && maxLevel == other.maxLevel && enchant.equals(other.enchant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(enchant, minLevel, maxLevel);
+        }
+
+        @Override
+        public String toString() {
+            if (!hasLevelConstraint()) return enchant;
+            if (minLevel == maxLevel) return enchant + "=" + minLevel;
+            return enchant + "[" + minLevel + ".." + (maxLevel == ANY_LEVEL_MAX ? "" : maxLevel) + "]";
+        }
+    }
+}
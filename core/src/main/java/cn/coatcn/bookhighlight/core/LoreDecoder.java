@@ -0,0 +1,14 @@
+package cn.coatcn.bookhighlight.core;
+
+/**
+ * 把原始 Lore 字符串解码为规范化后的纯文本（见 NameNormalizer）。
+ * 游戏内由 Text JSON 解析 + 缓存实现；脱离游戏时可用 {@link #PLAIN} 把原始字符串当作纯文本。
+ * 返回值只需在下一次 decode 之前有效，因此 PLAIN 直接返回 normalizeInto 的线程内缓冲区，不分配对象。
+ */
+@FunctionalInterface
+public interface LoreDecoder {
+
+    LoreDecoder PLAIN = NameNormalizer::normalizeInto;
+
+    CharSequence decode(String rawLore);
+}
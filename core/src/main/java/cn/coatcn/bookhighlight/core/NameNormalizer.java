@@ -0,0 +1,189 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.Arrays;
+
+/**
+ * 附魔名规范化：
+ * 1）去掉格式代码（§ 加一个字符）与所有空白（含全角空格、不换行空格）
+ * 2）全角 ASCII 转半角、常见繁体字转简体、ASCII 字母转小写
+ * 3）去掉末尾以空白分隔的等级：罗马数字（I~M）、阿拉伯数字、中文数字（一二三……十百）
+ *
+ * 例如 “§7鋒利 Ｖ” -> “锋利”，“锋利　十” -> “锋利”，“Fire Protection IV” -> “fireprotection”。
+ * 配置中的名称在构建目标快照时规范化一次；扫描使用手写状态机，不编译正则。
+ * 热路径用 normalizeInto：结果写进线程内复用的缓冲区，带格式代码、等级后缀的输入也不产生任何分配，
+ * 再用 EnchantNameIndex.resolve(CharSequence) 或 AhoCorasick 直接在缓冲区上查找；
+ * 需要保存结果时才用 normalize 得到 String（输入本身已是规范形式时返回原字符串）。
+ */
+public final class NameNormalizer {
+
+    private static final char FORMATTING_CODE = '§';
+
+    // 繁 -> 简对照（成对排列），只收录附魔名中常见的字
+    private static final String VARIANTS =
+            "鋒锋護护擊击燒烧彈弹鬥斗運运經经驗验補补詛诅綁绑縛缚滅灭穩稳輕轻靈灵衝冲貫贯裝装連连漁渔"
+            + "氣气遠远腳脚親亲觸触礦矿時时間间術术禦御銳锐鋭锐劍剑橫横掃扫災灾難难奪夺寶宝與与會会"
+            + "體体長长龍龙敵敌戰战鏈链風风飛飞實实點点過过韌韧雙双豐丰饒饶誠诚殺杀蟲虫壞坏強强擋挡"
+            + "節节級级縱纵躍跃輪轮環环專专屬属傷伤擴扩義义聖圣絕绝製制攝摄";
+
+    private static final char[] TRADITIONAL;
+    private static final char[] SIMPLIFIED;
+
+    static {
+        int n = VARIANTS.length() / 2;
+        char[][] pairs = new char[n][];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = new char[]{VARIANTS.charAt(i * 2), VARIANTS.charAt(i * 2 + 1)};
+        }
+        Arrays.sort(pairs, (a, b) -> Character.compare(a[0], b[0]));
+        TRADITIONAL = new char[n];
+        SIMPLIFIED = new char[n];
+        for (int i = 0; i < n; i++) {
+            TRADITIONAL[i] = pairs[i][0];
+            SIMPLIFIED[i] = pairs[i][1];
+        }
+    }
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    private NameNormalizer() {}
+
+    /**
+     * 规范化为匹配用的键；已是规范形式时返回同一个 String 实例
+     */
+    public static String normalize(CharSequence s) {
+        if (s == null) return "";
+        CharSequence key = normalizeInto(s);
+        if (s instanceof String str && contentEquals(key, str)) {
+            return str;
+        }
+        return key.toString();
+    }
+
+    /**
+     * 规范化到当前线程复用的缓冲区并返回它，不分配对象。
+     * 返回值只在本线程下一次调用 normalizeInto / normalize 之前有效，不能保存或跨线程传递。
+     */
+    public static CharSequence normalizeInto(CharSequence s) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        if (s == null) return sb;
+        int end = baseEnd(s);
+        for (int i = 0; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == FORMATTING_CODE) {
+                i++;
+                continue;
+            }
+            if (isSpace(c)) continue;
+            sb.append(canonical(c));
+        }
+        return sb;
+    }
+
+    /**
+     * 去掉末尾等级与空白后的“名称部分”结束下标，不分配对象
+     */
+    public static int baseEnd(CharSequence s) {
+        int end = trimEnd(s, s.length());
+        // 末尾最后一个以空白分隔的词
+        int start = end;
+        while (start > 0 && !isSpace(s.charAt(start - 1))) {
+            start--;
+        }
+        if (start == end || start == 0 || !isLevelToken(s, start, end)) {
+            return end;
+        }
+        // 前面还得剩下真正的名字（排除格式代码与空白）
+        int nameEnd = trimEnd(s, start);
+        return hasVisibleChar(s, nameEnd) ? nameEnd : end;
+    }
+
+    /**
+     * 单个字符的规范形式（全角转半角、繁转简、ASCII 小写）
+     */
+    public static char canonical(char c) {
+        c = fold(c);
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        if (c >= 0x4E00) {
+            int idx = Arrays.binarySearch(TRADITIONAL, c);
+            if (idx >= 0) return SIMPLIFIED[idx];
+        }
+        return c;
+    }
+
+    public static boolean isSpace(char c) {
+        return c == ' ' || c == '\u3000' || c == '\u00A0' || Character.isWhitespace(c);
+    }
+
+    // 全角 ASCII（！~～）转半角
+    private static char fold(char c) {
+        if (c >= '\uFF01' && c <= '\uFF5E') {
+            return (char) (c - 0xFEE0);
+        }
+        return c;
+    }
+
+    private static int trimEnd(CharSequence s, int end) {
+        while (end > 0) {
+            char c = s.charAt(end - 1);
+            if (isSpace(c)) {
+                end--;
+            } else if (end >= 2 && s.charAt(end - 2) == FORMATTING_CODE) {
+                // 末尾残留的格式代码，如 “锋利 V§r”
+                end -= 2;
+            } else {
+                break;
+            }
+        }
+        return end;
+    }
+
+    private static boolean hasVisibleChar(CharSequence s, int end) {
+        for (int i = 0; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == FORMATTING_CODE) {
+                i++;
+            } else if (!isSpace(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // [start, end) 是否整段都是罗马数字 / 阿拉伯数字 / 中文数字（允许夹带格式代码）
+    private static boolean isLevelToken(CharSequence s, int start, int end) {
+        int kind = 0; // 1 罗马，2 阿拉伯，3 中文
+        boolean any = false;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == FORMATTING_CODE) {
+                i++;
+                continue;
+            }
+            c = fold(c);
+            int k = isRoman(c) ? 1 : (c >= '0' && c <= '9') ? 2 : isChineseNumeral(c) ? 3 : 0;
+            if (k == 0 || (kind != 0 && k != kind)) return false;
+            kind = k;
+            any = true;
+        }
+        return any;
+    }
+
+    private static boolean isRoman(char c) {
+        return c == 'I' || c == 'V' || c == 'X' || c == 'L' || c == 'C' || c == 'D' || c == 'M';
+    }
+
+    static boolean isChineseNumeral(char c) {
+        return "零〇一二两三四五六七八九十百千".indexOf(c) >= 0;
+    }
+
+    static boolean contentEquals(CharSequence a, String s) {
+        if (a.length() != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (a.charAt(i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+}
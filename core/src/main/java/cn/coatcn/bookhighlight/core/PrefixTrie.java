@@ -0,0 +1,79 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 前缀树（名称自动补全）：
+ * 1）键为规范化后的名称（见 NameNormalizer），值为展示用的名称；同一个值可以挂在多个键下（中文名、英文 id）
+ * 2）构建后只读，可在多线程间共享；每个节点的子节点用有序 char 数组 + 二分查找存储（与 AhoCorasick 共用 SortedEdgeTable）
+ * 3）complete 先沿前缀走到对应节点，再按字典序深度优先收集，凑够 limit 个即停，
+ *    耗时只与前缀长度和结果数有关，与名称总数无关
+ */
+public final class PrefixTrie {
+
+    public static final PrefixTrie EMPTY = new PrefixTrie(Map.of());
+
+    private final char[][] keys;
+    private final int[][] next;
+    // 恰好在该节点结束的键对应的值，null 表示没有
+    private final String[] values;
+    private final int size;
+
+    public PrefixTrie(Map<String, String> entries) {
+        SortedEdgeTable edges = new SortedEdgeTable();
+        List<Integer> ends = new ArrayList<>();
+        List<String> endValues = new ArrayList<>();
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            String key = e.getKey();
+            if (key == null || key.isEmpty() || e.getValue() == null) continue;
+            ends.add(edges.insert(key));
+            endValues.add(e.getValue());
+        }
+        this.keys = edges.keys();
+        this.next = edges.next();
+        this.values = new String[edges.size()];
+        int n = 0;
+        for (int i = 0; i < ends.size(); i++) {
+            if (values[ends.get(i)] == null) n++;
+            values[ends.get(i)] = endValues.get(i);
+        }
+        this.size = n;
+    }
+
+    /**
+     * 键以 prefix（已规范化）开头的值，按键的字典序排列、去重，最多 limit 个；prefix 为空时返回空列表
+     */
+    public List<String> complete(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty() || limit <= 0) return List.of();
+        int state = 0;
+        for (int i = 0; i < prefix.length() && state >= 0; i++) {
+            state = SortedEdgeTable.find(keys[state], next[state], prefix.charAt(i));
+        }
+        if (state < 0) return List.of();
+        Set<String> out = new LinkedHashSet<>();
+        collect(state, limit, out);
+        return List.copyOf(out);
+    }
+
+    // 深度优先：先本节点，再按字符顺序遍历子节点
+    private void collect(int state, int limit, Set<String> out) {
+        if (values[state] != null) {
+            out.add(values[state]);
+        }
+        for (int k = 0; k < next[state].length && out.size() < limit; k++) {
+            collect(next[state][k], limit, out);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
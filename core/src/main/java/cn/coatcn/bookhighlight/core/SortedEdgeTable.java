@@ -0,0 +1,84 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 字符 trie 的边表（AhoCorasick 与 PrefixTrie 共用）：
+ * 1）状态 0 为根；每个状态的出边用有序 char 数组 + 同序的目标状态数组存储，查找为二分查找
+ * 2）构建期用 insert 逐个加入键，返回键末尾的状态，调用方按状态下标另存自己的数据
+ * 3）构建完成后用 keys / next 取出数组，查找走静态的 find，不分配对象
+ */
+final class SortedEdgeTable {
+
+    private final List<char[]> keyList = new ArrayList<>();
+    private final List<int[]> nextList = new ArrayList<>();
+
+    SortedEdgeTable() {
+        keyList.add(new char[0]);
+        nextList.add(new int[0]);
+    }
+
+    /**
+     * 沿 key 逐字符走下去，缺少的状态就地创建；返回 key 末尾的状态
+     */
+    int insert(CharSequence key) {
+        int state = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            int to = find(keyList.get(state), nextList.get(state), c);
+            if (to < 0) {
+                to = keyList.size();
+                keyList.add(new char[0]);
+                nextList.add(new int[0]);
+                addEdge(state, c, to);
+            }
+            state = to;
+        }
+        return state;
+    }
+
+    // 在有序位置插入一条边
+    private void addEdge(int state, char c, int to) {
+        char[] k = keyList.get(state);
+        int[] n = nextList.get(state);
+        int pos = -(Arrays.binarySearch(k, c) + 1);
+        char[] nk = new char[k.length + 1];
+        int[] nn = new int[n.length + 1];
+        System.arraycopy(k, 0, nk, 0, pos);
+        System.arraycopy(n, 0, nn, 0, pos);
+        nk[pos] = c;
+        nn[pos] = to;
+        System.arraycopy(k, pos, nk, pos + 1, k.length - pos);
+        System.arraycopy(n, pos, nn, pos + 1, n.length - pos);
+        keyList.set(state, nk);
+        nextList.set(state, nn);
+    }
+
+    int size() {
+        return keyList.size();
+    }
+
+    /**
+     * 各状态出边的字符（有序）
+     */
+    char[][] keys() {
+        return keyList.toArray(new char[0][]);
+    }
+
+    /**
+     * 各状态出边的目标状态，与 keys 同序
+     */
+    int[][] next() {
+        return nextList.toArray(new int[0][]);
+    }
+
+    /**
+     * 在一个状态的出边中查找字符 c，返回目标状态，-1 表示没有
+     */
+    static int find(char[] keys, int[] next, char c) {
+        int idx = Arrays.binarySearch(keys, c);
+        return idx >= 0 ? next[idx] : -1;
+    }
+}
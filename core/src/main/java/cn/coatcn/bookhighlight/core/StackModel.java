@@ -0,0 +1,91 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.Arrays;
+
+/**
+ * 与 Minecraft 无关的物品栈模型（不可变）：
+ * 1）物品 id（如 "minecraft:enchanted_book"）
+ * 2）存储附魔的 id 字符串与等级，按 NBT 中的顺序
+ * 3）原始 Lore 字符串（通常是 Text JSON，由 LoreDecoder 负责解码）
+ *
+ * 由 EnchantMatch 从 ItemStack 转换而来，也可在脱离游戏的测试与回放中直接构造。
+ */
+public final class StackModel {
+
+    public static final String ENCHANTED_BOOK = "minecraft:enchanted_book";
+
+    private static final String[] NO_STRINGS = new String[0];
+    private static final int[] NO_INTS = new int[0];
+
+    private final String itemId;
+    private final String[] enchantmentIds;
+    private final int[] levels;
+    private final String[] lore;
+
+    public StackModel(String itemId, String[] enchantmentIds, int[] levels, String[] lore) {
+        if (enchantmentIds != null && levels != null && enchantmentIds.length != levels.length) {
+            throw new IllegalArgumentException("附魔 id 与等级数量不一致");
+        }
+        this.itemId = itemId != null ? itemId : "";
+        this.enchantmentIds = enchantmentIds != null ? enchantmentIds : NO_STRINGS;
+        this.levels = levels != null ? levels : new int[this.enchantmentIds.length];
+        this.lore = lore != null ? lore : NO_STRINGS;
+    }
+
+    public static StackModel of(String itemId) {
+        return new StackModel(itemId, NO_STRINGS, NO_INTS, NO_STRINGS);
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public boolean isEnchantedBook() {
+        return ENCHANTED_BOOK.equals(itemId);
+    }
+
+    public int getEnchantmentCount() {
+        return enchantmentIds.length;
+    }
+
+    public String getEnchantmentId(int i) {
+        return enchantmentIds[i];
+    }
+
+    public int getLevel(int i) {
+        return levels[i];
+    }
+
+    public int getLoreCount() {
+        return lore.length;
+    }
+
+    public String getLore(int i) {
+        return lore[i];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StackModel other)) return false;
+        return itemId.equals(other.itemId)
+                && Arrays.equals(enchantmentIds, other.enchantmentIds)
+                && Arrays.equals(levels, other.levels)
+                && Arrays.equals(lore, other.lore);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = itemId.hashCode();
+        h = 31 * h + Arrays.hashCode(enchantmentIds);
+        h = 31 * h + Arrays.hashCode(levels);
+        h = 31 * h + Arrays.hashCode(lore);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "StackModel{" + itemId + ", " + Arrays.toString(enchantmentIds) + ", " + Arrays.toString(levels)
+                + ", lore=" + lore.length + "}";
+    }
+}
@@ -0,0 +1,351 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的规则匹配器（不可变，可跨线程共享）：
+ * 1）加载时把全部规则的条件展开成决策表：附魔 raw id -> 引用它的条件（所属规则、等级区间、在规则内的位）
+ * 2）求值时只遍历书上的存储附魔一遍，逐个查表；单条件规则直接命中，多条件规则在位图里累积，集齐即命中
+ * 3）没有 raw id 的名称（服务端自定义附魔）走 Lore：每行解码后用 Aho-Corasick 找出全部出现的名称；
+ *    Lore 里没有可靠的数字等级，因此只满足不限等级的条件。
+ *    名称表与其他条件里包含某个目标名的更长名称也编进自动机（只用来遮挡，不对应条件）：一处出现被更长的已知名称
+ *    完整覆盖时不算命中，例如目标 “保护” 不会在 “火焰保护”“摔落保护” 里命中
+ * 4）命中多条规则时取下标最小（排在最前）的一条；耗时只与书上的附魔数和命中的条件数有关，与规则总数无关
+ * 5）所有规则颜色相同时（例如只有普通目标列表），先命中哪条都一样，找到第一条即返回
+ */
+public final class TargetMatcher {
+
+    public static final TargetMatcher EMPTY = new TargetMatcher(List.<HighlightRule>of(), EnchantNameIndex.EMPTY);
+
+    private static final int[] NO_CONDITIONS = new int[0];
+
+    // 多条件规则求值用的临时位图，每个线程一份，避免热路径分配
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final EnchantNameIndex index;
+    private final List<HighlightRule> rules;
+
+    // 规则
+    private final int[] ruleColor;
+    private final long[] ruleFullMask;
+    private final boolean[] ruleSingle;
+
+    // 条件
+    private final int[] condRule;
+    private final long[] condBit;
+    private final int[] condMin;
+    private final int[] condMax;
+
+    // 决策表：raw id -> 条件下标；Lore 模式下标 -> 条件下标
+    private final int[][] condsByRawId;
+    private final int[][] condsByPattern;
+    private final BitSet targetIds = new BitSet();
+    private final AhoCorasick loreMatcher;
+    private final int[] patternLength;
+    // 能被 Lore 满足的条件所属规则中，下标最小的一条；id 阶段已命中更靠前的规则时可跳过 Lore
+    private final int firstLoreRule;
+    private final boolean firstHitWins;
+
+    /**
+     * 只有名称、不限等级的目标列表（每个名称一条规则，使用全局颜色）
+     */
+    public TargetMatcher(Collection<String> names, EnchantNameIndex index) {
+        this(toRules(names), index);
+    }
+
+    public TargetMatcher(List<HighlightRule> rules, EnchantNameIndex index) {
+        this.index = index;
+        this.rules = List.copyOf(rules);
+        int ruleCount = this.rules.size();
+        this.ruleColor = new int[ruleCount];
+        this.ruleFullMask = new long[ruleCount];
+        this.ruleSingle = new boolean[ruleCount];
+
+        List<int[]> conds = new ArrayList<>();          // {rule, bitIndex, min, max}
+        Map<Integer, List<Integer>> byRawId = new LinkedHashMap<>();
+        Map<String, List<Integer>> byKey = new LinkedHashMap<>();
+        Set<String> knownKeys = new LinkedHashSet<>();   // 全部条件的名称（含带等级条件的），用于遮挡
+        int maxRawId = -1;
+        for (int r = 0; r < ruleCount; r++) {
+            HighlightRule rule = this.rules.get(r);
+            ruleColor[r] = rule.getColor();
+            List<HighlightRule.Condition> list = rule.getConditions();
+            ruleSingle[r] = list.size() == 1;
+            ruleFullMask[r] = list.size() == 64 ? -1L : (1L << list.size()) - 1;
+            for (int b = 0; b < list.size(); b++) {
+                HighlightRule.Condition c = list.get(b);
+                int ci = conds.size();
+                conds.add(new int[]{r, b, c.getMinLevel(), c.getMaxLevel()});
+                String key = NameNormalizer.normalize(c.getEnchant());
+                if (key.isEmpty()) continue;
+                knownKeys.add(key);
+                for (int rawId : index.resolve(key)) {
+                    byRawId.computeIfAbsent(rawId, k -> new ArrayList<>()).add(ci);
+                    targetIds.set(rawId);
+                    maxRawId = Math.max(maxRawId, rawId);
+                }
+                // Lore 只能满足不限等级的条件
+                if (!c.hasLevelConstraint()) {
+                    byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(ci);
+                }
+            }
+        }
+
+        int n = conds.size();
+        this.condRule = new int[n];
+        this.condBit = new long[n];
+        this.condMin = new int[n];
+        this.condMax = new int[n];
+        for (int i = 0; i < n; i++) {
+            int[] c = conds.get(i);
+            condRule[i] = c[0];
+            condBit[i] = 1L << c[1];
+            condMin[i] = c[2];
+            condMax[i] = c[3];
+        }
+
+        this.condsByRawId = new int[maxRawId + 1][];
+        for (int i = 0; i <= maxRawId; i++) {
+            List<Integer> list = byRawId.get(i);
+            condsByRawId[i] = list != null ? toArray(list) : NO_CONDITIONS;
+        }
+
+        List<String> keys = new ArrayList<>(byKey.keySet());
+        int targetPatterns = keys.size();
+        knownKeys.addAll(index.getNames().keySet());
+        for (String name : knownKeys) {
+            if (!byKey.containsKey(name) && containsAnyKey(name, byKey.keySet())) {
+                keys.add(name);
+            }
+        }
+        this.loreMatcher = keys.isEmpty() ? AhoCorasick.EMPTY : new AhoCorasick(keys);
+        this.condsByPattern = new int[keys.size()][];
+        this.patternLength = new int[keys.size()];
+        int firstLore = Integer.MAX_VALUE;
+        for (int p = 0; p < keys.size(); p++) {
+            patternLength[p] = keys.get(p).length();
+            condsByPattern[p] = p < targetPatterns ? toArray(byKey.get(keys.get(p))) : NO_CONDITIONS;
+            for (int ci : condsByPattern[p]) {
+                firstLore = Math.min(firstLore, condRule[ci]);
+            }
+        }
+        this.firstLoreRule = firstLore;
+
+        boolean uniform = true;
+        for (int r = 1; r < ruleCount; r++) {
+            uniform &= ruleColor[r] == ruleColor[0];
+        }
+        this.firstHitWins = uniform;
+    }
+
+    private static List<HighlightRule> toRules(Collection<String> names) {
+        List<HighlightRule> rules = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (!NameNormalizer.normalize(name).isEmpty()) {
+                rules.add(HighlightRule.ofName(name));
+            }
+        }
+        return rules;
+    }
+
+    // name 是否严格包含某个目标名（相等的不算，它本身就是目标）
+    private static boolean containsAnyKey(String name, Collection<String> keys) {
+        for (String key : keys) {
+            if (name.length() > key.length() && name.contains(key)) return true;
+        }
+        return false;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] arr = new int[list.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = list.get(i);
+        }
+        return arr;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty() || (targetIds.isEmpty() && loreMatcher.isEmpty());
+    }
+
+    public boolean matches(StackModel stack, LoreDecoder decoder) {
+        return evaluate(stack, decoder) >= 0;
+    }
+
+    /**
+     * 命中的规则下标（优先级最高的一条），-1 表示没有命中
+     */
+    public int evaluate(StackModel stack, LoreDecoder decoder) {
+        if (stack == null || isEmpty() || !stack.isEnchantedBook()) return -1;
+
+        int best = Integer.MAX_VALUE;
+        Scratch scratch = null;
+
+        // 1）存储附魔：一次遍历，逐个查决策表
+        if (!targetIds.isEmpty()) {
+            for (int i = 0; i < stack.getEnchantmentCount(); i++) {
+                if (firstHitWins && best != Integer.MAX_VALUE) break;
+                int rawId = index.rawIdOf(stack.getEnchantmentId(i));
+                if (rawId < 0 || rawId >= condsByRawId.length) continue;
+                int level = stack.getLevel(i);
+                for (int ci : condsByRawId[rawId]) {
+                    int r = condRule[ci];
+                    if (r >= best || level < condMin[ci] || level > condMax[ci]) continue;
+                    if (ruleSingle[r]) {
+                        best = r;
+                    } else {
+                        if (scratch == null) scratch = SCRATCH.get().reset(rules.size());
+                        if (scratch.set(r, condBit[ci]) == ruleFullMask[r]) {
+                            best = r;
+                        }
+                    }
+                }
+            }
+        }
+
+        // 2）Lore：兼容服务端自定义附魔（通过 Lore 字段展示的名称）
+        if (best > firstLoreRule && !(firstHitWins && best != Integer.MAX_VALUE) && stack.getLoreCount() > 0) {
+            if (scratch == null) scratch = SCRATCH.get().reset(rules.size());
+            for (int i = 0; i < stack.getLoreCount(); i++) {
+                CharSequence text = decoder.decode(stack.getLore(i));
+                if (text == null) continue;
+                // 先收集本行全部出现（结束位置 + 模式），再去掉被更长名称覆盖的
+                scratch.hitCount = 0;
+                boolean anyTarget = false;
+                int state = 0;
+                for (int k = 0; k < text.length(); k++) {
+                    state = loreMatcher.step(state, text.charAt(k));
+                    for (int s = state; s > 0; s = loreMatcher.nextOutputState(s)) {
+                        int p = loreMatcher.ownOutputOf(s);
+                        if (p < 0) continue;
+                        scratch.addHit(k + 1, p);
+                        anyTarget |= condsByPattern[p].length > 0;
+                    }
+                }
+                if (!anyTarget) continue;
+                for (int h = 0; h < scratch.hitCount; h++) {
+                    int p = scratch.hitPattern[h];
+                    if (condsByPattern[p].length == 0 || isCovered(scratch, h)) continue;
+                    for (int ci : condsByPattern[p]) {
+                        int r = condRule[ci];
+                        if (r >= best) continue;
+                        if (ruleSingle[r]) {
+                            best = r;
+                        } else if (scratch.set(r, condBit[ci]) == ruleFullMask[r]) {
+                            best = r;
+                        }
+                    }
+                }
+                if (best <= firstLoreRule || (firstHitWins && best != Integer.MAX_VALUE)) break;
+            }
+        }
+
+        if (scratch != null) scratch.clear();
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    // 第 h 处出现是否被同一行里另一处更长的出现完整覆盖
+    private boolean isCovered(Scratch scratch, int h) {
+        int end = scratch.hitEnd[h];
+        int start = end - patternLength[scratch.hitPattern[h]];
+        for (int g = 0; g < scratch.hitCount; g++) {
+            int len = patternLength[scratch.hitPattern[g]];
+            int gEnd = scratch.hitEnd[g];
+            if (len > end - start && gEnd >= end && gEnd - len <= start) return true;
+        }
+        return false;
+    }
+
+    /**
+     * NBT 附魔 id 字符串是否出现在任意规则条件中（不考虑等级）
+     */
+    public boolean isTargetId(String enchantmentId) {
+        int rawId = index.rawIdOf(enchantmentId);
+        return rawId >= 0 && targetIds.get(rawId);
+    }
+
+    public boolean hasTargetIds() {
+        return !targetIds.isEmpty();
+    }
+
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    public HighlightRule getRule(int rule) {
+        return rules.get(rule);
+    }
+
+    /**
+     * 规则颜色；HighlightRule.NO_COLOR 表示沿用全局颜色
+     */
+    public int getColor(int rule) {
+        return rule >= 0 && rule < ruleColor.length ? ruleColor[rule] : HighlightRule.NO_COLOR;
+    }
+
+    public List<HighlightRule> getRules() {
+        return rules;
+    }
+
+    public AhoCorasick getLoreMatcher() {
+        return loreMatcher;
+    }
+
+    public EnchantNameIndex getIndex() {
+        return index;
+    }
+
+    // 多条件规则的满足情况：规则下标 -> 已满足条件的位图，只清理本次动过的规则；
+    // 另有一行 Lore 内全部出现的位置（结束下标与模式），逐行复用
+    private static final class Scratch {
+        long[] masks = new long[16];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        int[] hitEnd = new int[16];
+        int[] hitPattern = new int[16];
+        int hitCount = 0;
+
+        void addHit(int end, int pattern) {
+            if (hitCount == hitEnd.length) {
+                hitEnd = Arrays.copyOf(hitEnd, hitCount * 2);
+                hitPattern = Arrays.copyOf(hitPattern, hitCount * 2);
+            }
+            hitEnd[hitCount] = end;
+            hitPattern[hitCount++] = pattern;
+        }
+
+        Scratch reset(int ruleCount) {
+            if (masks.length < ruleCount) {
+                masks = new long[Math.max(ruleCount, masks.length * 2)];
+            }
+            return this;
+        }
+
+        long set(int rule, long bit) {
+            if (masks[rule] == 0L) {
+                if (touchedCount == touched.length) {
+                    int[] grown = new int[touched.length * 2];
+                    System.arraycopy(touched, 0, grown, 0, touchedCount);
+                    touched = grown;
+                }
+                touched[touchedCount++] = rule;
+            }
+            return masks[rule] |= bit;
+        }
+
+        void clear() {
+            for (int i = 0; i < touchedCount; i++) {
+                masks[touched[i]] = 0L;
+            }
+            touchedCount = 0;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package cn.coatcn.bookhighlight.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用模拟的容器界面（FakeChest）驱动 ClickScheduler：
+ * 1）全部搬完：状态为 DONE，每个目标格子恰好点击一次
+ * 2）限速：任意 1 秒窗口内的点击数不超过 clicksPerSecond + 令牌桶容量，单个 tick 不超过 maxClicksPerTick
+ * 3）背包放满后停止：状态为 INVENTORY_FULL，不会多点
+ * 4）服务端延迟、点击被拒绝、运行中途格子被换成别的物品或新出现目标：不点非目标格子，被拒绝的格子会重试，
+ *    等待回应期间不重复点击
+ * 5）界面关闭后立即结束
+ */
+class ClickSchedulerTest {
+
+    private static final long TICK_NANOS = 50_000_000L;
+    private static final long SECOND = 1_000_000_000L;
+
+    // 1）54 格箱子里 30 本目标书，全部搬完
+    @Test
+    void allMoved() {
+        FakeChest chest = new FakeChest(54, 36, 0, 0.0, new Random(1L));
+        for (int i = 0; i < 30; i++) chest.target[i] = true;
+        ClickScheduler s = new ClickScheduler(chest, 54, 20.0, 1);
+        offerAll(s, chest);
+        run(s, chest, 400);
+        assertEquals(ClickScheduler.Status.DONE, s.getStatus());
+        assertEquals(30, chest.moved);
+        assertEquals(30, s.getClicks());
+    }
+
+    // 2）限速：记录每次点击的时间，检查滑动窗口
+    @ParameterizedTest
+    @ValueSource(ints = {10, 40})
+    void rateLimited(int cps) {
+        int perTick = 2;
+        FakeChest chest = new FakeChest(54, 54, 0, 0.0, new Random(2L));
+        for (int i = 0; i < 54; i++) chest.target[i] = i % 2 == 0 || i < 30;
+        ClickScheduler s = new ClickScheduler(chest, 54, cps, perTick);
+        offerAll(s, chest);
+        run(s, chest, 2000);
+        List<Long> times = chest.clickTimes;
+        int maxPerTick = 0;
+        int maxPerSecond = 0;
+        for (int i = 0, j = 0, k = 0; i < times.size(); i++) {
+            while (times.get(i) - times.get(j) >= SECOND) j++;
+            maxPerSecond = Math.max(maxPerSecond, i - j + 1);
+            while (!times.get(k).equals(times.get(i))) k++;
+            maxPerTick = Math.max(maxPerTick, i - k + 1);
+        }
+        int perTickSeen = maxPerTick;
+        int perSecondSeen = maxPerSecond;
+        assertTrue(perTickSeen <= perTick, () -> "单 tick 点击 " + perTickSeen);
+        assertTrue(perSecondSeen <= cps + perTick, () -> "1 秒内点击 " + perSecondSeen);
+        assertEquals(ClickScheduler.Status.DONE, s.getStatus());
+    }
+
+    // 3）背包只剩 5 格
+    @Test
+    void inventoryFull() {
+        FakeChest chest = new FakeChest(27, 5, 0, 0.0, new Random(3L));
+        for (int i = 0; i < 20; i++) chest.target[i] = true;
+        ClickScheduler s = new ClickScheduler(chest, 27, 20.0, 2);
+        offerAll(s, chest);
+        run(s, chest, 400);
+        assertEquals(ClickScheduler.Status.INVENTORY_FULL, s.getStatus());
+        assertEquals(5, chest.moved);
+        assertEquals(5, s.getClicks());
+    }
+
+    // 4）服务端延迟 3 tick、两成点击被拒绝、中途换物品与新增目标
+    @ParameterizedTest
+    @ValueSource(ints = {7, 42})
+    void midRunUpdates(int seed) {
+        Random random = new Random(seed);
+        FakeChest chest = new FakeChest(54, 36, 3, 0.2, random);
+        for (int i = 0; i < 54; i++) chest.target[i] = random.nextInt(3) == 0;
+        ClickScheduler s = new ClickScheduler(chest, 54, 10.0, 1);
+        offerAll(s, chest);
+        long now = 0L;
+        for (int t = 0; t < 2000 && s.getStatus() == ClickScheduler.Status.RUNNING; t++) {
+            if (t % 7 == 3) {
+                // 服务端把某格换成别的东西，或放进一本新的目标书
+                int slot = random.nextInt(54);
+                chest.target[slot] = !chest.target[slot];
+            }
+            offerAll(s, chest);
+            chest.now = now;
+            s.tick(now);
+            chest.deliver();
+            now += TICK_NANOS;
+        }
+        assertEquals(ClickScheduler.Status.DONE, s.getStatus());
+        assertEquals(0, chest.badClicks, "点击了非目标格子");
+        assertEquals(0, chest.duplicateClicks, "等待回应期间重复点击");
+        int left = 0;
+        for (boolean b : chest.target) if (b) left++;
+        // 被拒绝两次的格子会被放弃，数量应很少
+        int remaining = left;
+        assertTrue(remaining <= 3, () -> "剩余目标 " + remaining);
+    }
+
+    // 4）调用方还有没判定完的格子（高亮分帧 / 后台求值中）：队列空了也不结束，之后判定出的目标照样搬走
+    @Test
+    void waitsForUndecidedSlots() {
+        FakeChest chest = new FakeChest(54, 36, 0, 0.0, new Random(4L));
+        ClickScheduler s = new ClickScheduler(chest, 54, 20.0, 1);
+        long now = 0L;
+        for (int t = 0; t < 10; t++, now += TICK_NANOS) {
+            assertEquals(ClickScheduler.Status.RUNNING, s.tick(now, true));
+        }
+        for (int i = 0; i < 12; i++) chest.target[i] = true;
+        for (int t = 0; t < 400 && s.getStatus() == ClickScheduler.Status.RUNNING; t++, now += TICK_NANOS) {
+            offerAll(s, chest);
+            chest.now = now;
+            s.tick(now, t < 5);
+            chest.deliver();
+        }
+        assertEquals(ClickScheduler.Status.DONE, s.getStatus());
+        assertEquals(12, chest.moved);
+    }
+
+    // 5）界面关闭后不再点击
+    @Test
+    void closed() {
+        FakeChest chest = new FakeChest(27, 36, 0, 0.0, new Random(5L));
+        for (int i = 0; i < 27; i++) chest.target[i] = true;
+        ClickScheduler s = new ClickScheduler(chest, 27, 5.0, 1);
+        offerAll(s, chest);
+        s.tick(0L);
+        chest.open = false;
+        s.tick(TICK_NANOS);
+        int clicks = s.getClicks();
+        s.tick(2 * TICK_NANOS);
+        assertEquals(ClickScheduler.Status.CLOSED, s.getStatus());
+        assertEquals(clicks, s.getClicks());
+    }
+
+    private static void offerAll(ClickScheduler s, FakeChest chest) {
+        for (int i = 0; i < chest.target.length; i++) {
+            if (chest.target[i]) s.offer(i);
+        }
+    }
+
+    private static void run(ClickScheduler s, FakeChest chest, int ticks) {
+        long now = 0L;
+        for (int t = 0; t < ticks && s.getStatus() == ClickScheduler.Status.RUNNING; t++) {
+            chest.now = now;
+            s.tick(now);
+            chest.deliver();
+            now += TICK_NANOS;
+        }
+    }
+
+    /**
+     * 模拟的容器界面：点击在 latency 个 tick 后才由“服务端”生效，按 rejectRate 的概率被拒绝
+     */
+    private static final class FakeChest implements ClickTarget {
+        final boolean[] target;
+        final boolean[] inFlight;
+        final int latency;
+        final double rejectRate;
+        final Random random;
+        final List<Long> clickTimes = new ArrayList<>();
+        final ArrayDeque<long[]> pending = new ArrayDeque<>();
+        boolean open = true;
+        int room;
+        int moved;
+        int badClicks;
+        int duplicateClicks;
+        long now;
+        int tick;
+
+        FakeChest(int slots, int room, int latency, double rejectRate, Random random) {
+            this.target = new boolean[slots];
+            this.inFlight = new boolean[slots];
+            this.room = room;
+            this.latency = latency;
+            this.rejectRate = rejectRate;
+            this.random = random;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean shouldMove(int slot) {
+            return target[slot];
+        }
+
+        @Override
+        public boolean hasRoomFor(int slot) {
+            return room > 0;
+        }
+
+        @Override
+        public void quickMove(int slot) {
+            clickTimes.add(now);
+            if (!target[slot]) badClicks++;
+            if (inFlight[slot]) duplicateClicks++;
+            inFlight[slot] = true;
+            if (latency == 0) {
+                apply(slot);
+            } else {
+                pending.add(new long[]{tick + latency, slot});
+            }
+        }
+
+        // 每 tick 结束时：到期的点击由服务端处理
+        void deliver() {
+            tick++;
+            while (!pending.isEmpty() && pending.peek()[0] <= tick) {
+                apply((int) pending.poll()[1]);
+            }
+        }
+
+        private void apply(int slot) {
+            inFlight[slot] = false;
+            if (!target[slot] || room == 0 || random.nextDouble() < rejectRate) return;
+            target[slot] = false;
+            room--;
+            moved++;
+        }
+    }
+}
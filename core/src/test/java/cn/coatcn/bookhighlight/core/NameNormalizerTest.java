@@ -0,0 +1,75 @@
+package cn.coatcn.bookhighlight.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 名称规范化：
+ * 1）格式代码、全角字符、繁体字、末尾等级的处理结果
+ * 2）normalizeInto + EnchantNameIndex.resolve 与 normalize 查表结果一致，且热身之后不产生分配
+ */
+class NameNormalizerTest {
+
+    private static final String[] DECORATED = {
+            "§7锋利 V", "§b鋒利 Ｖ§r", "效率　十", "经验修补", "§7耐久 III (稀有)", "时运 3", "未知附魔 II"
+    };
+
+    @Test
+    void stripsCodesLevelsAndVariants() {
+        assertEquals("锋利", NameNormalizer.normalize("§7鋒利 Ｖ"));
+        assertEquals("锋利", NameNormalizer.normalize("锋利　十"));
+        assertEquals("fireprotection", NameNormalizer.normalize("Fire Protection IV"));
+        assertEquals("锋利", NameNormalizer.normalize("锋利 V§r"));
+        // 只有等级、没有名字时不去掉
+        assertEquals("v", NameNormalizer.normalize("V"));
+    }
+
+    @Test
+    void canonicalInputIsReturnedAsIs() {
+        String canonical = "经验修补";
+        assertSame(canonical, NameNormalizer.normalize(canonical));
+    }
+
+    @Test
+    void normalizeIntoResolvesLikeNormalize() {
+        EnchantNameIndex index = SyntheticStacks.index();
+        for (String name : DECORATED) {
+            assertArrayEquals(index.resolve(NameNormalizer.normalize(name)),
+                    index.resolve(NameNormalizer.normalizeInto(name)), name);
+        }
+    }
+
+    @Test
+    void normalizeIntoAndResolveDoNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+
+        EnchantNameIndex index = SyntheticStacks.index();
+        long tid = Thread.currentThread().getId();
+        int sink = resolveAll(index, 100_000);
+        long before = bean.getThreadAllocatedBytes(tid);
+        sink += resolveAll(index, 1_000_000);
+        long allocated = bean.getThreadAllocatedBytes(tid) - before;
+        assertTrue(sink > 0);
+        // 留一点余量给计数器本身与 JIT 期间的偶发分配
+        assertTrue(allocated <= 1024, () -> "normalizeInto + resolve 产生了分配：" + allocated + " bytes");
+    }
+
+    private static int resolveAll(EnchantNameIndex index, int rounds) {
+        int n = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String name : DECORATED) {
+                n += index.resolve(NameNormalizer.normalizeInto(name)).length;
+            }
+        }
+        return n;
+    }
+}
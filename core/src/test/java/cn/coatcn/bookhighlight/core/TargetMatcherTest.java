@@ -0,0 +1,163 @@
+package cn.coatcn.bookhighlight.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TargetMatcher 与朴素参考实现逐个比对（合成物品栈，见 SyntheticStacks）：
+ * 1）1 / 10 / 200 个普通目标：是否命中
+ * 2）10 / 100 / 500 条随机规则（等级区间、多条件组合，颜色各不相同）：命中的规则下标
+ * 3）Lore 里的名称被更长的已知名称完整覆盖时不算命中（“保护” 不在 “摔落保护” 里命中）
+ *
+ * 耗时见 core 的 JMH 基准（CoreMatchBenchmark），这里只检查结果。
+ */
+class TargetMatcherTest {
+
+    private static final int STACKS = 50_000;
+
+    private static final EnchantNameIndex INDEX = SyntheticStacks.index();
+    private static final List<StackModel> STACK_LIST = SyntheticStacks.stacks(STACKS, 42L);
+    private static final Map<String, String> NAME_BY_ID = new HashMap<>();
+
+    static {
+        for (String[] pair : SyntheticStacks.VANILLA) {
+            NAME_BY_ID.put(pair[0], pair[1]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200})
+    void targetsMatchReference(int targetCount) {
+        List<String> targets = SyntheticStacks.targets(targetCount);
+        TargetMatcher matcher = new TargetMatcher(targets, INDEX);
+        Set<String> keys = new HashSet<>();
+        for (String t : targets) {
+            keys.add(NameNormalizer.normalize(t));
+        }
+        Set<String> known = new HashSet<>(keys);
+        known.addAll(INDEX.getNames().keySet());
+
+        for (StackModel stack : STACK_LIST) {
+            assertEquals(reference(stack, keys, known), matcher.matches(stack, LoreDecoder.PLAIN), stack::toString);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 500})
+    void rulesMatchReference(int ruleCount) {
+        List<HighlightRule> rules = SyntheticStacks.rules(ruleCount, 7L);
+        TargetMatcher matcher = new TargetMatcher(rules, INDEX);
+        Set<String> known = new HashSet<>(INDEX.getNames().keySet());
+        for (HighlightRule rule : rules) {
+            for (HighlightRule.Condition c : rule.getConditions()) {
+                known.add(NameNormalizer.normalize(c.getEnchant()));
+            }
+        }
+
+        for (StackModel stack : STACK_LIST) {
+            assertEquals(referenceRule(stack, rules, known), matcher.evaluate(stack, LoreDecoder.PLAIN), stack::toString);
+        }
+    }
+
+    @Test
+    void shortLoreNameInsideLongerNameDoesNotMatch() {
+        TargetMatcher matcher = new TargetMatcher(List.of("保护"), INDEX);
+        assertFalse(matcher.matches(lore("§7摔落保护 IV"), LoreDecoder.PLAIN));
+        assertTrue(matcher.matches(lore("§7保护 IV"), LoreDecoder.PLAIN));
+        // 同一行里既有长名称也有单独出现的短名称
+        assertTrue(matcher.matches(lore("摔落保护 II，保护 III"), LoreDecoder.PLAIN));
+    }
+
+    @Test
+    void longestTargetWinsAtTheSameSpan() {
+        TargetMatcher matcher = new TargetMatcher(List.of("再生", "再生之力"), INDEX);
+        assertEquals(1, matcher.evaluate(lore("§7再生之力 II"), LoreDecoder.PLAIN));
+        assertEquals(0, matcher.evaluate(lore("§7再生 II"), LoreDecoder.PLAIN));
+    }
+
+    private static StackModel lore(String... lines) {
+        return new StackModel(StackModel.ENCHANTED_BOOK, null, null, lines);
+    }
+
+    // 朴素参考实现：附魔 id -> 中文名 -> 规范键；Lore 逐个目标查找未被更长已知名称覆盖的出现
+    private static boolean reference(StackModel stack, Set<String> keys, Set<String> known) {
+        if (!stack.isEnchantedBook()) return false;
+        for (int i = 0; i < stack.getEnchantmentCount(); i++) {
+            String name = NAME_BY_ID.get(stack.getEnchantmentId(i));
+            if (name != null && keys.contains(NameNormalizer.normalize(name))) {
+                return true;
+            }
+        }
+        for (int i = 0; i < stack.getLoreCount(); i++) {
+            String text = NameNormalizer.normalize(stack.getLore(i));
+            for (String key : keys) {
+                if (!key.isEmpty() && loreContains(text, key, known)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 朴素参考实现：按顺序逐条规则、逐个条件检查，第一条全部满足的规则即为结果
+    private static int referenceRule(StackModel stack, List<HighlightRule> rules, Set<String> known) {
+        if (!stack.isEnchantedBook()) return -1;
+        for (int r = 0; r < rules.size(); r++) {
+            boolean all = true;
+            for (HighlightRule.Condition c : rules.get(r).getConditions()) {
+                if (!satisfies(stack, c, known)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) return r;
+        }
+        return -1;
+    }
+
+    private static boolean satisfies(StackModel stack, HighlightRule.Condition c, Set<String> known) {
+        String key = NameNormalizer.normalize(c.getEnchant());
+        for (int i = 0; i < stack.getEnchantmentCount(); i++) {
+            String name = NAME_BY_ID.get(stack.getEnchantmentId(i));
+            if (name != null && NameNormalizer.normalize(name).equals(key) && c.acceptsLevel(stack.getLevel(i))) {
+                return true;
+            }
+        }
+        if (c.hasLevelConstraint()) return false;
+        for (int i = 0; i < stack.getLoreCount(); i++) {
+            if (loreContains(NameNormalizer.normalize(stack.getLore(i)), key, known)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // text 中是否有一处 key 没有被 known 里更长的名称完整覆盖
+    private static boolean loreContains(String text, String key, Set<String> known) {
+        for (int at = text.indexOf(key); at >= 0; at = text.indexOf(key, at + 1)) {
+            if (!covered(text, at, at + key.length(), known)) return true;
+        }
+        return false;
+    }
+
+    private static boolean covered(String text, int start, int end, Set<String> known) {
+        for (String name : known) {
+            if (name.length() <= end - start) continue;
+            for (int at = text.indexOf(name); at >= 0 && at <= start; at = text.indexOf(name, at + 1)) {
+                if (at + name.length() >= end) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,128 @@
+package cn.coatcn.bookhighlight.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 合成数据：一份小型“附魔注册表”（id + 中文名）以及按固定种子生成的物品栈。
+ * 比例大致模仿仓库：原版附魔书、只带 Lore 的服务端自定义附魔书、非附魔书各占一部分。
+ */
+final class SyntheticStacks {
+
+    static final String[][] VANILLA = {
+            {"minecraft:sharpness", "锋利"}, {"minecraft:efficiency", "效率"}, {"minecraft:unbreaking", "耐久"},
+            {"minecraft:mending", "经验修补"}, {"minecraft:fortune", "时运"}, {"minecraft:protection", "保护"},
+            {"minecraft:feather_falling", "摔落保护"}, {"minecraft:looting", "抢夺"}, {"minecraft:power", "力量"},
+            {"minecraft:silk_touch", "精准采集"}, {"minecraft:smite", "亡灵杀手"}, {"minecraft:knockback", "击退"},
+            {"minecraft:fire_aspect", "火焰附加"}, {"minecraft:respiration", "水下呼吸"}, {"minecraft:thorns", "荆棘"},
+            {"minecraft:infinity", "无限"}, {"minecraft:luck_of_the_sea", "海之眷顾"}, {"minecraft:lure", "饵钓"},
+            {"minecraft:frost_walker", "冰霜行者"}, {"minecraft:soul_speed", "灵魂疾行"},
+    };
+
+    // “再生之力” 包含 “再生”，与原版的 “保护” / “摔落保护” 一样用来检查短名称不会在长名称里命中
+    static final String[] CUSTOM = {"利刃", "奥术防御", "鲜血魔咒", "突刺", "夜伏", "再生", "肾上腺素", "不意", "轻巧", "活力", "再生之力"};
+
+    private static final String[] ROMAN = {"I", "II", "III", "IV", "V"};
+    private static final String[] OTHER_ITEMS = {"minecraft:diamond_sword", "minecraft:cobblestone", "minecraft:book", "minecraft:shulker_box"};
+
+    private SyntheticStacks() {}
+
+    static EnchantNameIndex index() {
+        Map<String, int[]> names = new HashMap<>();
+        Map<String, Integer> keys = new HashMap<>();
+        for (int i = 0; i < VANILLA.length; i++) {
+            keys.put(VANILLA[i][0], i);
+            keys.put(VANILLA[i][0].substring("minecraft:".length()), i);
+            names.put(NameNormalizer.normalize(VANILLA[i][1]), new int[]{i});
+        }
+        return new EnchantNameIndex(names, keys);
+    }
+
+    /**
+     * 前若干个取真实名称，不够时补充不会命中任何物品的名称
+     */
+    static List<String> targets(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; names.size() < count; i++) {
+            if (i < VANILLA.length) {
+                names.add(VANILLA[i][1]);
+            } else if (i < VANILLA.length + CUSTOM.length) {
+                names.add(CUSTOM[i - VANILLA.length]);
+            } else {
+                names.add("未使用附魔" + i);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 随机规则：1~3 个条件，名称取自原版与自定义附魔，约一半带等级下限 / 精确等级 / 区间
+     */
+    static List<HighlightRule> rules(int count, long seed) {
+        Random random = new Random(seed);
+        List<HighlightRule> rules = new ArrayList<>(count);
+        for (int r = 0; r < count; r++) {
+            int n = 1 + random.nextInt(3);
+            List<HighlightRule.Condition> conditions = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                String name = random.nextInt(4) == 0
+                        ? CUSTOM[random.nextInt(CUSTOM.length)]
+                        : VANILLA[random.nextInt(VANILLA.length)][1];
+                conditions.add(switch (random.nextInt(6)) {
+                    case 0 -> HighlightRule.Condition.atLeast(name, 1 + random.nextInt(5));
+                    case 1 -> HighlightRule.Condition.exactly(name, 1 + random.nextInt(5));
+                    case 2 -> new HighlightRule.Condition(name, 2, 4);
+                    default -> HighlightRule.Condition.any(name);
+                });
+            }
+            rules.add(new HighlightRule("rule" + r, 0xFF000000 | random.nextInt(0xFFFFFF), conditions));
+        }
+        return rules;
+    }
+
+    static List<StackModel> stacks(int count, long seed) {
+        Random random = new Random(seed);
+        List<StackModel> stacks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int r = random.nextInt(10);
+            if (r < 4) {
+                stacks.add(vanillaBook(random));
+            } else if (r < 7) {
+                stacks.add(loreBook(random));
+            } else {
+                stacks.add(StackModel.of(OTHER_ITEMS[random.nextInt(OTHER_ITEMS.length)]));
+            }
+        }
+        return stacks;
+    }
+
+    static StackModel vanillaBook(Random random) {
+        Map<String, Integer> enchants = new LinkedHashMap<>();
+        int n = 1 + random.nextInt(3);
+        for (int k = 0; k < n; k++) {
+            enchants.put(VANILLA[random.nextInt(VANILLA.length)][0], 1 + random.nextInt(5));
+        }
+        String[] ids = enchants.keySet().toArray(new String[0]);
+        int[] levels = enchants.values().stream().mapToInt(Integer::intValue).toArray();
+        return new StackModel(StackModel.ENCHANTED_BOOK, ids, levels, null);
+    }
+
+    static StackModel loreBook(Random random) {
+        int lines = 5 + random.nextInt(6);
+        String[] lore = new String[lines];
+        for (int k = 0; k < lines; k++) {
+            // 少数服务端把原版附魔也写进 Lore
+            String name = random.nextInt(5) == 0
+                    ? VANILLA[random.nextInt(VANILLA.length)][1]
+                    : CUSTOM[random.nextInt(CUSTOM.length)];
+            lore[k] = k == 0
+                    ? "§7" + name + " " + ROMAN[random.nextInt(ROMAN.length)] + " (稀有)"
+                    : "§8说明文字第 " + k + " 行";
+        }
+        return new StackModel(StackModel.ENCHANTED_BOOK, null, null, lore);
+    }
+}
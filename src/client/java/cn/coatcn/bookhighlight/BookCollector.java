@@ -0,0 +1,151 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.ClickScheduler;
+import cn.coatcn.bookhighlight.core.ClickTarget;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.option.KeyBinding;
+import net.minecraft.client.util.InputUtil;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+import net.minecraft.screen.slot.SlotActionType;
+import net.minecraft.text.Text;
+import org.lwjgl.glfw.GLFW;
+
+import java.util.Set;
+
+/**
+ * 一键收取（按键，默认 G，只在容器界面中生效）：
+ * 1）把当前界面里被高亮的容器格子 shift 点击到玩家背包；点击交给 ClickScheduler（见 core 模块），
+ *    按 collectClicksPerSecond 限速，每个客户端 tick 推进一次
+ * 2）每个 tick 都把仍然高亮的格子重新交给调度器：中途被服务端放进目标书的格子也会被收取，
+ *    已被换掉或拿走的格子在点击前确认时跳过；高亮还有格子没算完（分帧 / 后台求值）时不算收取结束
+ * 3）背包放不下时停止；界面关闭、换了界面或再次按键时取消；结束时在动作栏提示点击了多少格
+ * 4）玩家背包界面与村民交易（shift 点击输出格就是完成交易）不响应
+ */
+public class BookCollector {
+
+    private static final int TICKS_PER_SECOND = 20;
+    private static final Set<String> SKIPPED_STRATEGIES = Set.of("player", "merchant");
+
+    private static final BookCollector INSTANCE = new BookCollector();
+
+    public static BookCollector getInstance() {
+        return INSTANCE;
+    }
+
+    private KeyBinding collectKey;
+    // 进行中的一次收取（只在客户端线程上访问）
+    private ContainerHighlighter highlighter;
+    private ClickScheduler scheduler;
+
+    private BookCollector() {}
+
+    public void register() {
+        collectKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+                "key.book_highlight.collect",
+                InputUtil.Type.KEYSYM,
+                GLFW.GLFW_KEY_G,
+                "category.book_highlight"
+        ));
+        ClientTickEvents.END_CLIENT_TICK.register(this::tick);
+    }
+
+    /**
+     * 容器界面中按下按键时调用（见 HandledScreenMixin）；返回这次按键是否被处理
+     */
+    public boolean onKeyPressed(int keyCode, int scanCode, ContainerHighlighter highlighter) {
+        if (collectKey == null || !collectKey.matchesKey(keyCode, scanCode)) return false;
+        if (SKIPPED_STRATEGIES.contains(highlighter.getStrategy().id())) return false;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (scheduler != null && this.highlighter == highlighter) {
+            scheduler.cancel();
+            finish(client, "已停止收取");
+            return true;
+        }
+        int clicksPerSecond = ConfigManager.getInstance().getCollectClicksPerSecond();
+        int perTick = Math.max(1, (clicksPerSecond + TICKS_PER_SECOND - 1) / TICKS_PER_SECOND);
+        ScreenHandler handler = highlighter.getHandler();
+        this.highlighter = highlighter;
+        this.scheduler = new ClickScheduler(new HandlerTarget(client, highlighter), handler.slots.size(), clicksPerSecond, perTick);
+        offerHighlighted();
+        if (scheduler.getRemaining() == 0 && highlighter.getPendingCount() == 0) {
+            finish(client, "没有高亮的物品");
+        }
+        return true;
+    }
+
+    private void tick(MinecraftClient client) {
+        if (scheduler == null) return;
+        offerHighlighted();
+        ClickScheduler.Status status = scheduler.tick(System.nanoTime(), highlighter.getPendingCount() > 0);
+        switch (status) {
+            case DONE -> finish(client, "已收取 " + scheduler.getClicks() + " 格");
+            case INVENTORY_FULL -> finish(client, "背包已满，已收取 " + scheduler.getClicks() + " 格");
+            case CLOSED -> finish(client, null);
+            default -> {}
+        }
+    }
+
+    // 仍然高亮的格子交给调度器（已在队列、等待服务端回应的格子由调度器忽略）
+    private void offerHighlighted() {
+        ScreenHandler handler = highlighter.getHandler();
+        for (int id : highlighter.getSlots()) {
+            Slot slot = handler.slots.get(id);
+            if (!slot.getStack().isEmpty() && highlighter.isHighlighted(slot)) {
+                scheduler.offer(id);
+            }
+        }
+    }
+
+    private void finish(MinecraftClient client, String message) {
+        scheduler = null;
+        highlighter = null;
+        if (message != null && client.player != null) {
+            client.player.sendMessage(Text.literal(message), true);
+        }
+    }
+
+    /**
+     * 调度器看到的容器界面：以高亮结果判断格子是否仍需搬走，用 QUICK_MOVE 点击
+     */
+    private static final class HandlerTarget implements ClickTarget {
+
+        private final MinecraftClient client;
+        private final ContainerHighlighter highlighter;
+        private final ScreenHandler handler;
+
+        HandlerTarget(MinecraftClient client, ContainerHighlighter highlighter) {
+            this.client = client;
+            this.highlighter = highlighter;
+            this.handler = highlighter.getHandler();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return client.player != null && client.interactionManager != null
+                    && client.player.currentScreenHandler == handler;
+        }
+
+        @Override
+        public boolean shouldMove(int slot) {
+            Slot s = handler.slots.get(slot);
+            return !s.getStack().isEmpty() && highlighter.isHighlighted(s);
+        }
+
+        @Override
+        public boolean hasRoomFor(int slot) {
+            PlayerInventory inventory = client.player.getInventory();
+            ItemStack stack = handler.slots.get(slot).getStack();
+            return inventory.getEmptySlot() >= 0 || inventory.getOccupiedSlotWithRoomForStack(stack) >= 0;
+        }
+
+        @Override
+        public void quickMove(int slot) {
+            client.interactionManager.clickSlot(handler.syncId, slot, 0, SlotActionType.QUICK_MOVE, client.player);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package cn.coatcn.bookhighlight;
+
+/**
+ * 供其他模组使用的入口（fabric.mod.json 中的 "book_highlight" 入口点）：
+ * 在客户端初始化时调用，可为自己的 ScreenHandler 注册扫描策略，例如
+ *
+ * <pre>
+ * "entrypoints": { "book_highlight": ["com.example.MyBookHighlightPlugin"] }
+ *
+ * public void registerStrategies(ContainerStrategies registry) {
+ *     registry.register(MyStorageScreenHandler.class, ContainerStrategy.range("mymod:storage", 0, 108, true));
+ * }
+ * </pre>
+ */
+public interface BookHighlightApi {
+
+    void registerStrategies(ContainerStrategies registry);
+}
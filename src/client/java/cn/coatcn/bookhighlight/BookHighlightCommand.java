@@ -0,0 +1,70 @@
+package cn.coatcn.bookhighlight;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+
+import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.argument;
+import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.literal;
+
+/**
+ * 客户端命令：
+ * /bookhighlight stats           输出滑动窗口内的 p50/p99 与累计计数
+ * /bookhighlight stats reset     清空统计
+ * /bookhighlight stats overlay   开关容器界面左上角的统计行
+ * /bookhighlight search [名称]   打开附魔书搜索界面
+ */
+public final class BookHighlightCommand {
+
+    private BookHighlightCommand() {}
+
+    public static void register(CommandDispatcher<FabricClientCommandSource> dispatcher) {
+        dispatcher.register(literal("bookhighlight")
+                .then(literal("stats")
+                        .executes(BookHighlightCommand::printStats)
+                        .then(literal("reset").executes(ctx -> {
+                            HighlightStats.getInstance().reset();
+                            ctx.getSource().sendFeedback(Text.literal("[BookHighlight] 统计已清空"));
+                            return 1;
+                        }))
+                        .then(literal("overlay").executes(ctx -> {
+                            HighlightStats stats = HighlightStats.getInstance();
+                            stats.setOverlay(!stats.isOverlay());
+                            ctx.getSource().sendFeedback(Text.literal("[BookHighlight] 统计行：" + (stats.isOverlay() ? "开" : "关")));
+                            return 1;
+                        })))
+                .then(literal("search")
+                        .executes(ctx -> openSearch(""))
+                        .then(argument("query", StringArgumentType.greedyString())
+                                .executes(ctx -> openSearch(StringArgumentType.getString(ctx, "query"))))));
+    }
+
+    // 聊天框在命令执行后才关闭，界面要推迟到下一次客户端任务再打开
+    private static int openSearch(String query) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        client.send(() -> client.setScreen(new BookSearchScreen(null, query)));
+        return 1;
+    }
+
+    private static int printStats(CommandContext<FabricClientCommandSource> ctx) {
+        HighlightStats stats = HighlightStats.getInstance();
+        RingHistogram frames = stats.getFrameNanos();
+        RingHistogram scans = stats.getScanNanos();
+        MatchCache cache = MatchCache.getInstance();
+        FabricClientCommandSource source = ctx.getSource();
+        source.sendFeedback(Text.literal(String.format("[BookHighlight] 每帧耗时（最近 %d 帧）：p50 %.1fµs  p99 %.1fµs",
+                frames.count(), frames.percentile(50) / 1000.0, frames.percentile(99) / 1000.0)));
+        source.sendFeedback(Text.literal(String.format("[BookHighlight] 重新扫描（最近 %d 次）：p50 %.1fµs  p99 %.1fµs",
+                scans.count(), scans.percentile(50) / 1000.0, scans.percentile(99) / 1000.0)));
+        source.sendFeedback(Text.literal(String.format("[BookHighlight] 累计扫描 %d 次 / %d 格 / %d 命中；上一帧 %d 格 %d 命中",
+                stats.getScans(), stats.getSlotsScanned(), stats.getMatchesFound(), stats.getFrameSlots(), stats.getFrameMatches())));
+        source.sendFeedback(Text.literal(String.format("[BookHighlight] 缓存命中率 %.1f%%（%d 命中 / %d 未命中，%d 条）",
+                stats.getCacheHitRatio() * 100.0, cache.getHits(), cache.getMisses(), cache.size())));
+        source.sendFeedback(Text.literal(String.format("[BookHighlight] 配置重载 %d 次，保存 %d 次",
+                stats.getReloads(), stats.getSaves())));
+        return 1;
+    }
+}
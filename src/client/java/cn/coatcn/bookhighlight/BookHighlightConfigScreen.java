@@ -1,14 +1,19 @@
 package cn.coatcn.bookhighlight;
 
+import cn.coatcn.bookhighlight.core.HighlightRule;
+import cn.coatcn.bookhighlight.core.NameNormalizer;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.Element;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.TextFieldWidget;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
+import org.lwjgl.glfw.GLFW;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,16 +21,46 @@ import java.util.Map;
 /**
  * 简易设置界面：
  * - 显示并可编辑当前选中的附魔中文名
+ * - 每个条目可填写等级条件：空白不限，"3" 恰好 3 级，"3+" 至少 3 级，"2-4" 为 2~4 级
+ *   （与附魔书存储附魔里的数值等级比较，写法无效时显示为红色；点 Done 时跳到第一个无效的条目并提示，不保存）
  * - 可新增/删除条目
+ * - Search 打开附魔书搜索界面（见 BookSearchScreen）
+ * - 条目列表只为可见的几行创建控件，滚轮翻动时把这几行重新绑定到别的条目；
+ *   编辑中的内容保存在 rows 里，调整窗口大小也不会丢失，只重建可见行
+ * - 顶部筛选框按规范化后的名称部分匹配；继续输入时只在上一次的结果里筛
+ * - 名称输入框按前缀补全附魔中文名（也可输入英文 id，见 EnchantNameReloader），Tab 接受补全
  */
 public class BookHighlightConfigScreen extends Screen {
 
-    private final List<TextFieldWidget> fields = new ArrayList<>();
-    private final List<ButtonWidget> removeButtons = new ArrayList<>();
-    private final List<ButtonWidget> toggleButtons = new ArrayList<>();
-    private final List<Boolean> visibleFlags = new ArrayList<>();
-    private ButtonWidget addButton;
-    private ButtonWidget doneButton;
+    private static final int VALID_COLOR = 0xE0E0E0;
+    private static final int INVALID_COLOR = 0xFF5555;
+    private static final int HINT_COLOR = 0xA0A0A0;
+    private static final int LIST_TOP = 54;
+    private static final int ROW_HEIGHT = 24;
+    private static final int MAX_COMPLETIONS = 5;
+
+    // 全部条目（编辑中的内容），第一次 init 时从配置读取
+    private List<Row> rows;
+    // 通过筛选的条目下标（rows 中的位置）
+    private int[] filtered = new int[0];
+    private int filteredCount = 0;
+    private String filterKey = "";
+    private int scroll = 0;
+
+    private TextFieldWidget filterField;
+    // 可见行的控件，第 i 行显示 rows[bound[i]]，-1 为空行
+    private TextFieldWidget[] nameFields;
+    private TextFieldWidget[] levelFields;
+    private ButtonWidget[] toggleButtons;
+    private ButtonWidget[] removeButtons;
+    private int[] bound;
+    // 正在把条目写入控件，此时控件的修改回调不应写回条目
+    private boolean binding;
+    // 保存被拦下的原因（等级写法无效），修改等级后清除
+    private Text saveError;
+
+    private int completionRow = -1;
+    private List<String> completions = List.of();
 
     public BookHighlightConfigScreen() {
         super(Text.literal("Book Highlight Config"));
@@ -34,90 +69,271 @@ public class BookHighlightConfigScreen extends Screen {
     @Override
     protected void init() {
         super.init();
-        ConfigManager.getInstance().reloadIfChanged();
-        fields.clear();
-        removeButtons.clear();
-        toggleButtons.clear();
-        visibleFlags.clear();
-
-        int y = 40;
-        for (var entry : ConfigManager.getInstance().getTargetMap().entrySet()) {
-            addEntry(entry.getKey(), entry.getValue(), y);
-            y += 24;
+        if (rows == null) {
+            ConfigManager.getInstance().reloadIfChanged();
+            rows = new ArrayList<>();
+            Map<String, HighlightRule.Condition> levels = ConfigManager.getInstance().getTargetLevels();
+            for (var entry : ConfigManager.getInstance().getTargetMap().entrySet()) {
+                HighlightRule.Condition level = levels.get(entry.getKey());
+                rows.add(new Row(entry.getKey(), level != null ? level.levelSpec() : "", entry.getValue()));
+            }
+        }
+
+        String filterText = filterField != null ? filterField.getText() : "";
+        filterField = new TextFieldWidget(textRenderer, width / 2 - 100, 28, 170, 20, Text.literal("filter"));
+        filterField.setMaxLength(64);
+        filterField.setText(filterText);
+        filterField.setSuggestion(filterText.isEmpty() ? "筛选" : null);
+        filterField.setChangedListener(this::applyFilter);
+        addDrawableChild(filterField);
+
+        int n = Math.max(1, (height - 66 - LIST_TOP) / ROW_HEIGHT);
+        nameFields = new TextFieldWidget[n];
+        levelFields = new TextFieldWidget[n];
+        toggleButtons = new ButtonWidget[n];
+        removeButtons = new ButtonWidget[n];
+        bound = new int[n];
+        for (int i = 0; i < n; i++) {
+            addRow(i, LIST_TOP + i * ROW_HEIGHT);
         }
+        completionRow = -1;
+        completions = List.of();
 
-        addButton = ButtonWidget.builder(Text.literal("Add"), btn -> addEntry("", true, 40 + fields.size() * 24))
+        addDrawableChild(ButtonWidget.builder(Text.literal("Add"), btn -> addEntry())
                 .dimensions(width / 2 - 100, height - 60, 60, 20)
-                .build();
-        addDrawableChild(addButton);
+                .build());
 
-        doneButton = ButtonWidget.builder(Text.literal("Done"), btn -> saveAndClose())
+        addDrawableChild(ButtonWidget.builder(Text.literal("Search"), btn ->
+                        MinecraftClient.getInstance().setScreen(new BookSearchScreen(this, "")))
+                .dimensions(width / 2 + 40, height - 60, 60, 20)
+                .build());
+
+        addDrawableChild(ButtonWidget.builder(Text.literal("Done"), btn -> saveAndClose())
                 .dimensions(width / 2 - 40, height - 30, 80, 20)
-                .build();
-        addDrawableChild(doneButton);
+                .build());
+
+        filterKey = "";
+        refilter(NameNormalizer.normalize(filterText));
+        bindRows();
     }
 
-    private void addEntry(String text, boolean visible, int y) {
+    // 第 i 个可见行的控件；回调通过 bound[i] 找到当前显示的条目
+    private void addRow(int i, int y) {
         int fieldX = width / 2 - 100;
-        TextFieldWidget field = new TextFieldWidget(textRenderer, fieldX, y, 120, 20, Text.literal("name"));
+        TextFieldWidget field = new TextFieldWidget(textRenderer, fieldX, y, 85, 20, Text.literal("name"));
         field.setMaxLength(64);
-        field.setText(text);
-        fields.add(field);
-        visibleFlags.add(visible);
+        field.setChangedListener(s -> {
+            if (binding || bound[i] < 0) return;
+            Row row = rows.get(bound[i]);
+            row.name = s;
+            row.key = NameNormalizer.normalize(s);
+            updateCompletions(i);
+        });
+        nameFields[i] = field;
         addDrawableChild(field);
 
-        ButtonWidget toggle = ButtonWidget.builder(getToggleText(visible), btn -> {
-            int idx = toggleButtons.indexOf(btn);
-            boolean nv = !visibleFlags.get(idx);
-            visibleFlags.set(idx, nv);
-            btn.setMessage(getToggleText(nv));
+        TextFieldWidget level = new TextFieldWidget(textRenderer, fieldX + 89, y, 33, 20, Text.literal("level"));
+        level.setMaxLength(9);
+        level.setChangedListener(s -> {
+            updateLevelField(level, s);
+            if (!binding && bound[i] >= 0) {
+                rows.get(bound[i]).level = s;
+                saveError = null;
+            }
+        });
+        levelFields[i] = level;
+        addDrawableChild(level);
+
+        ButtonWidget toggle = ButtonWidget.builder(getToggleText(true), btn -> {
+            if (bound[i] < 0) return;
+            Row row = rows.get(bound[i]);
+            row.visible = !row.visible;
+            btn.setMessage(getToggleText(row.visible));
         }).dimensions(fieldX + 125, y, 20, 20).build();
-        toggleButtons.add(toggle);
+        toggleButtons[i] = toggle;
         addDrawableChild(toggle);
 
         ButtonWidget remove = ButtonWidget.builder(Text.literal("X"), btn -> {
-            int idx = fields.indexOf(field);
-            if (idx >= 0) {
-                remove(field);
-                remove(removeButtons.get(idx));
-                remove(toggleButtons.get(idx));
-                fields.remove(idx);
-                removeButtons.remove(idx);
-                toggleButtons.remove(idx);
-                visibleFlags.remove(idx);
-                relayoutEntries();
-            }
+            if (bound[i] < 0) return;
+            rows.remove(bound[i]);
+            // 下标整体前移，重新完整筛选一次
+            String key = filterKey;
+            filterKey = "";
+            refilter(key);
+            bindRows();
         }).dimensions(fieldX + 150, y, 20, 20).build();
-        removeButtons.add(remove);
+        removeButtons[i] = remove;
         addDrawableChild(remove);
     }
 
-    private void relayoutEntries() {
-        for (int i = 0; i < fields.size(); i++) {
-            int y = 40 + i * 24;
-            fields.get(i).setY(y);
-            toggleButtons.get(i).setY(y);
-            removeButtons.get(i).setY(y);
+    private void addEntry() {
+        // 清空筛选，保证新条目可见
+        if (!filterField.getText().isEmpty()) {
+            filterField.setText("");
         }
+        rows.add(new Row("", "", true));
+        filterKey = "";
+        refilter("");
+        scroll = Math.max(0, filteredCount - nameFields.length);
+        bindRows();
+        setFocused(nameFields[filteredCount - 1 - scroll]);
+    }
+
+    private void applyFilter(String text) {
+        filterField.setSuggestion(text.isEmpty() ? "筛选" : null);
+        refilter(NameNormalizer.normalize(text));
+        scroll = 0;
+        bindRows();
+    }
+
+    // 新的筛选词包含旧词时，只需检查上次留下的条目
+    private void refilter(String key) {
+        boolean narrow = !filterKey.isEmpty() && key.contains(filterKey);
+        if (filtered.length < rows.size()) {
+            filtered = Arrays.copyOf(filtered, Math.max(rows.size(), filtered.length * 2));
+        }
+        int n = 0;
+        if (narrow) {
+            for (int k = 0; k < filteredCount; k++) {
+                if (rows.get(filtered[k]).key.contains(key)) filtered[n++] = filtered[k];
+            }
+        } else {
+            for (int idx = 0; idx < rows.size(); idx++) {
+                if (key.isEmpty() || rows.get(idx).key.contains(key)) filtered[n++] = idx;
+            }
+        }
+        filteredCount = n;
+        filterKey = key;
+        scroll = Math.max(0, Math.min(scroll, filteredCount - nameFields.length));
+    }
+
+    // 把当前滚动位置上的条目写入可见行的控件
+    private void bindRows() {
+        binding = true;
+        for (int i = 0; i < nameFields.length; i++) {
+            int k = scroll + i;
+            boolean show = k < filteredCount;
+            bound[i] = show ? filtered[k] : -1;
+            nameFields[i].visible = show;
+            levelFields[i].visible = show;
+            toggleButtons[i].visible = show;
+            removeButtons[i].visible = show;
+            if (show) {
+                Row row = rows.get(bound[i]);
+                nameFields[i].setText(row.name);
+                nameFields[i].setSuggestion(null);
+                levelFields[i].setText(row.level);
+                updateLevelField(levelFields[i], row.level);
+                toggleButtons[i].setMessage(getToggleText(row.visible));
+            }
+        }
+        binding = false;
+        completionRow = -1;
+        completions = List.of();
+    }
+
+    // 名称补全：灰色显示第一个候选的剩余部分，Tab 接受；其余候选显示在行尾
+    private void updateCompletions(int i) {
+        TextFieldWidget field = nameFields[i];
+        String text = field.getText();
+        completionRow = i;
+        completions = EnchantNameReloader.getCompletions().complete(NameNormalizer.normalize(text), MAX_COMPLETIONS);
+        String first = completions.isEmpty() ? null : completions.get(0);
+        field.setSuggestion(first != null && first.startsWith(text) && first.length() > text.length()
+                ? first.substring(text.length())
+                : null);
+    }
+
+    @Override
+    public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
+        if (keyCode == GLFW.GLFW_KEY_TAB && completionRow >= 0 && !completions.isEmpty()
+                && nameFields[completionRow].isFocused() && !completions.get(0).equals(nameFields[completionRow].getText())) {
+            nameFields[completionRow].setText(completions.get(0));
+            return true;
+        }
+        return super.keyPressed(keyCode, scanCode, modifiers);
+    }
+
+    @Override
+    public boolean mouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
+        int max = Math.max(0, filteredCount - nameFields.length);
+        int next = Math.max(0, Math.min(max, scroll - (int) Math.signum(verticalAmount)));
+        if (next != scroll) {
+            scroll = next;
+            // 行控件要换绑到别的条目，先取消其焦点，避免继续输入写到别的条目里
+            Element focused = getFocused();
+            if (focused != null && focused != filterField) {
+                setFocused(null);
+            }
+            bindRows();
+        }
+        return true;
+    }
+
+    // 空白时显示“不限”提示；写法无效时文字变红
+    private static void updateLevelField(TextFieldWidget field, String spec) {
+        field.setSuggestion(spec.isEmpty() ? "不限" : null);
+        field.setEditableColor(HighlightRule.Condition.parse("", spec) != null ? VALID_COLOR : INVALID_COLOR);
     }
 
     private void saveAndClose() {
         Map<String, Boolean> map = new LinkedHashMap<>();
-        for (int i = 0; i < fields.size(); i++) {
-            String s = fields.get(i).getText().trim();
+        Map<String, HighlightRule.Condition> levels = new LinkedHashMap<>();
+        for (int idx = 0; idx < rows.size(); idx++) {
+            Row row = rows.get(idx);
+            String s = row.name.trim();
             if (!s.isEmpty()) {
-                map.put(s, visibleFlags.get(i));
+                map.put(s, row.visible);
+                HighlightRule.Condition level = HighlightRule.Condition.parse(s, row.level);
+                if (level == null) {
+                    // 写法无效：不能悄悄当成不限等级保存，停在这一条让玩家改
+                    showInvalidLevel(idx);
+                    return;
+                }
+                if (level.hasLevelConstraint()) {
+                    levels.put(s, level);
+                }
             }
         }
-        ConfigManager.getInstance().updateTargets(map);
+        ConfigManager.getInstance().updateTargets(map, levels);
         MinecraftClient.getInstance().setScreen(null);
     }
 
+    // 清空筛选并滚动到第 idx 个条目，聚焦它的等级输入框
+    private void showInvalidLevel(int idx) {
+        if (!filterField.getText().isEmpty()) {
+            filterField.setText("");
+        }
+        scroll = Math.max(0, Math.min(idx, filteredCount - nameFields.length));
+        bindRows();
+        setFocused(levelFields[idx - scroll]);
+        saveError = Text.literal("等级写法无效：" + rows.get(idx).name.trim()
+                + "（空白不限，3 / 3+ / 2-4）");
+    }
+
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
         renderBackground(context, mouseX, mouseY, delta);
         super.render(context, mouseX, mouseY, delta);
         context.drawCenteredTextWithShadow(textRenderer, title, width / 2, 15, 0xFFFFFF);
+        context.drawTextWithShadow(textRenderer, filteredCount + " / " + rows.size(), width / 2 + 75, 34, HINT_COLOR);
+
+        int fieldX = width / 2 - 100;
+        if (filteredCount > nameFields.length) {
+            // 滚动条
+            int trackHeight = nameFields.length * ROW_HEIGHT - 4;
+            int barHeight = Math.max(8, trackHeight * nameFields.length / filteredCount);
+            int barTop = LIST_TOP + (trackHeight - barHeight) * scroll / (filteredCount - nameFields.length);
+            context.fill(fieldX - 6, LIST_TOP, fieldX - 4, LIST_TOP + trackHeight, 0x40FFFFFF);
+            context.fill(fieldX - 6, barTop, fieldX - 4, barTop + barHeight, 0xC0FFFFFF);
+        }
+        if (saveError != null) {
+            context.drawCenteredTextWithShadow(textRenderer, saveError, width / 2, height - 39, INVALID_COLOR);
+        }
+        if (completionRow >= 0 && completions.size() > 1 && nameFields[completionRow].isFocused()) {
+            context.drawTextWithShadow(textRenderer, String.join(" / ", completions),
+                    fieldX + 175, nameFields[completionRow].getY() + 6, HINT_COLOR);
+        }
     }
 
     @Override
@@ -129,4 +345,19 @@ public class BookHighlightConfigScreen extends Screen {
         return Text.literal(visible ? "显示" : "隐藏")
                 .formatted(visible ? Formatting.GREEN : Formatting.RED);
     }
-}
\ No newline at end of file
+
+    // 一个目标条目（编辑中的内容）；key 为规范化后的名称，用于筛选
+    private static final class Row {
+        String name;
+        String key;
+        String level;
+        boolean visible;
+
+        Row(String name, String level, boolean visible) {
+            this.name = name;
+            this.key = NameNormalizer.normalize(name);
+            this.level = level;
+            this.visible = visible;
+        }
+    }
+}
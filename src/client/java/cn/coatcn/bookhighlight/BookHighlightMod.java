@@ -1,16 +1,28 @@
 package cn.coatcn.bookhighlight;
 
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
+import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
+import net.minecraft.resource.ResourceType;
 import org.lwjgl.glfw.GLFW;
 
 /**
  * 客户端入口：
  * 1）启动时加载配置
- * 2）注册按键打开设置界面，并在每个客户端 tick 监测配置文件变更
+ * 2）注册资源重载监听，把中文附魔名解析为注册表 id
+ * 3）启动后台线程监听配置文件变更，解析结果回到客户端线程替换
+ * 4）注册按键打开设置界面
+ * 5）注册 /bookhighlight 客户端命令（开销统计）
+ * 6）调用其他模组的 "book_highlight" 入口，让它们注册自己的容器扫描策略
+ * 7）记录各个容器里见过的附魔书（按世界分开的磁盘索引），供搜索界面使用
+ * 8）注册一键收取高亮物品的按键（限速点击，见 BookCollector）
  */
 public class BookHighlightMod implements ClientModInitializer {
 
@@ -20,6 +32,24 @@ public class BookHighlightMod implements ClientModInitializer {
     public void onInitializeClient() {
         // 初次加载配置（若不存在则复制默认配置）
         ConfigManager.getInstance().loadOrInit();
+        // 外部修改由后台线程发现并解析，回到客户端线程再替换
+        ConfigManager.getInstance().startWatching(task -> MinecraftClient.getInstance().execute(task));
+        // 保存是异步合并写入的，退出前把还没落盘的修改写完
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> ConfigManager.getInstance().flushPendingSave());
+
+        // 跨箱子的附魔书索引：记录右键的方块、进出世界时切换索引目录
+        BookIndexRecorder.getInstance().register();
+
+        // 容器界面中一键收取高亮的格子
+        BookCollector.getInstance().register();
+
+        // 其他模组的容器扫描策略
+        for (BookHighlightApi api : FabricLoader.getInstance().getEntrypoints("book_highlight", BookHighlightApi.class)) {
+            api.registerStrategies(ContainerStrategies.getInstance());
+        }
+
+        // 资源/语言重载时重建“中文名 -> 附魔 id”索引
+        ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(new EnchantNameReloader());
 
         // 注册打开设置界面的按键（默认为配置中的 openKey，初次为 B）
         openConfigKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
@@ -29,12 +59,19 @@ public class BookHighlightMod implements ClientModInitializer {
                 "category.book_highlight"
         ));
 
+        // /bookhighlight stats：查看模组自身的开销；/bookhighlight search：搜索见过的附魔书
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> BookHighlightCommand.register(dispatcher));
+
+        // 快捷键只在配置真正变化时重绑，避免每 tick 重建全局按键表
+        ConfigManager.getInstance().addKeyListener((oldKey, newKey) -> updateKeyBinding(newKey));
+
         // 每个客户端 tick：
         // 1）监测是否按下按键以打开界面
-        // 2）检测配置文件是否被外部修改
+        // 2）仅当后台监听不可用时，才退回到逐 tick 检查配置文件修改时间
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
-            ConfigManager.getInstance().reloadIfChanged();
-            updateKeyBinding(ConfigManager.getInstance().getOpenKey());
+            if (!ConfigManager.getInstance().isWatching()) {
+                ConfigManager.getInstance().reloadIfChanged();
+            }
             if (openConfigKey.wasPressed()) {
                 client.setScreen(new BookHighlightConfigScreen());
             }
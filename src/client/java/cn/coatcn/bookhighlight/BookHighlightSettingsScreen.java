@@ -9,7 +9,7 @@ import net.minecraft.text.Text;
 import net.minecraft.client.util.InputUtil;
 
 /**
- * Mod Menu 设置界面：允许修改打开配置界面的快捷键以及高亮颜色。
+ * Mod Menu 设置界面：允许修改打开配置界面的快捷键、高亮颜色、高亮样式、潜影盒深入扫描与数量角标，以及按容器类型开关高亮。
  */
 public class BookHighlightSettingsScreen extends Screen {
 
@@ -40,11 +40,47 @@ public class BookHighlightSettingsScreen extends Screen {
         colorField.setText(String.format("0x%08X", ConfigManager.getInstance().getHighlightColor()));
         addDrawableChild(colorField);
 
+        addDrawableChild(ButtonWidget.builder(getStyleText(ConfigManager.getInstance().getHighlightStyle()), btn -> {
+            HighlightStyle[] styles = HighlightStyle.values();
+            HighlightStyle next = styles[(ConfigManager.getInstance().getHighlightStyle().ordinal() + 1) % styles.length];
+            ConfigManager.getInstance().setHighlightStyle(next);
+            btn.setMessage(getStyleText(next));
+        }).dimensions(centerX - 100, y + 60, 200, 20).build());
+
+        addDrawableChild(ButtonWidget.builder(getNestedText(), btn -> {
+            ConfigManager cfg = ConfigManager.getInstance();
+            cfg.setNestedScan(!cfg.isNestedScan());
+            btn.setMessage(getNestedText());
+        }).dimensions(centerX - 100, y + 90, 98, 20).build());
+
+        addDrawableChild(ButtonWidget.builder(getBadgeText(), btn -> {
+            ConfigManager cfg = ConfigManager.getInstance();
+            cfg.setCountBadge(!cfg.isCountBadge());
+            btn.setMessage(getBadgeText());
+        }).dimensions(centerX + 2, y + 90, 98, 20).build());
+
+        addDrawableChild(ButtonWidget.builder(Text.literal("容器类型..."),
+                        btn -> MinecraftClient.getInstance().setScreen(new ContainerTypesScreen(this)))
+                .dimensions(centerX - 100, y + 120, 200, 20)
+                .build());
+
         addDrawableChild(ButtonWidget.builder(Text.literal("Done"), btn -> saveAndClose())
-                .dimensions(centerX - 100, y + 60, 200, 20)
+                .dimensions(centerX - 100, y + 150, 200, 20)
                 .build());
     }
 
+    private Text getNestedText() {
+        return Text.literal("潜影盒内部: " + (ConfigManager.getInstance().isNestedScan() ? "开" : "关"));
+    }
+
+    private Text getBadgeText() {
+        return Text.literal("数量角标: " + (ConfigManager.getInstance().isCountBadge() ? "开" : "关"));
+    }
+
+    private Text getStyleText(HighlightStyle style) {
+        return Text.literal("高亮样式: " + style.id());
+    }
+
     private Text getKeyText(int keyCode) {
         return Text.literal("快捷键: " + InputUtil.Type.KEYSYM.createFromCode(keyCode).getLocalizedText().getString());
     }
@@ -58,8 +94,8 @@ public class BookHighlightSettingsScreen extends Screen {
     @Override
     public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
         if (listening) {
+            // 按键重绑由 ConfigManager 的按键监听完成
             ConfigManager.getInstance().setOpenKey(keyCode);
-            BookHighlightMod.updateKeyBinding(keyCode);
             keyButton.setMessage(getKeyText(keyCode));
             listening = false;
             return true;
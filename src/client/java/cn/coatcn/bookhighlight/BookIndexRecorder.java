@@ -0,0 +1,271 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.EnchantNameIndex;
+import cn.coatcn.bookhighlight.core.NameNormalizer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.event.player.UseBlockCallback;
+import net.fabricmc.fabric.api.event.player.UseEntityCallback;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.EnchantedBookItem;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.registry.Registries;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.util.ActionResult;
+import net.minecraft.util.Identifier;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跨箱子的附魔书索引（配置项 indexContainers，默认开启）：
+ * 1）右键一个带物品栏的方块实体（箱子、木桶、潜影盒等）时记下坐标，随后几秒内打开的容器界面就归到这个坐标；
+ *    右键其他方块、潜行放置方块、右键实体（运输矿车、带箱子的船）都会清掉记下的坐标，
+ *    实体容器、服务端菜单与玩家背包因此不会被记到错误的位置
+ * 2）容器内容每次重新扫描时，在客户端线程上汇总其中的附魔书（附魔 id、等级、本数），与上一次相同则跳过
+ * 3）写入与搜索都交给单独的索引线程（BookIndex 只在该线程上访问），修改攒到 FLUSH_DELAY_SECONDS 后一起落盘
+ * 4）每个世界（服务器地址或单人存档名）一个索引目录，进入世界时切换，断开连接与退出游戏时写回
+ */
+public class BookIndexRecorder {
+
+    private static final String DIR_NAME = "index";
+    private static final long BIND_TIMEOUT_MS = 3000L;
+    private static final long FLUSH_DELAY_SECONDS = 10L;
+    private static final Set<String> SKIPPED_STRATEGIES = Set.of("player", "horse", "merchant");
+
+    private static final BookIndexRecorder INSTANCE = new BookIndexRecorder();
+
+    public static BookIndexRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "BookHighlight-Index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 以下字段只在索引线程上访问
+    private BookIndex index;
+    private ScheduledFuture<?> pendingFlush;
+
+    // 以下字段只在客户端线程上访问
+    private String world;
+    private String useDimension;
+    private long usePos;
+    private long useTime;
+    private ScreenHandler boundHandler;
+    private String boundDimension;
+    private long boundPos;
+    private String[] lastIds;
+    private int[] lastLevels;
+    private int[] lastCounts;
+
+    private BookIndexRecorder() {}
+
+    public void register() {
+        UseBlockCallback.EVENT.register((player, world, hand, hit) -> {
+            if (world.isClient) {
+                boolean placing = player.shouldCancelInteraction() && !player.getStackInHand(hand).isEmpty();
+                if (!placing && world.getBlockEntity(hit.getBlockPos()) instanceof Inventory) {
+                    useDimension = world.getRegistryKey().getValue().toString();
+                    usePos = hit.getBlockPos().asLong();
+                    useTime = System.currentTimeMillis();
+                } else {
+                    useDimension = null;
+                }
+            }
+            return ActionResult.PASS;
+        });
+        UseEntityCallback.EVENT.register((player, world, hand, entity, hit) -> {
+            if (world.isClient) {
+                useDimension = null;
+            }
+            return ActionResult.PASS;
+        });
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> openWorld(worldName(client)));
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> openWorld(null));
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            try {
+                executor.submit(this::closeIndex).get(2, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * 记录扫描策略选出的格子中的附魔书；未开启、不是方块容器或无法确定坐标时什么也不做
+     */
+    public void record(ScreenHandler handler, ContainerStrategy strategy, int[] slots) {
+        if (!ConfigManager.getInstance().isIndexContainers() || world == null) return;
+        if (handler != boundHandler) {
+            bind(handler, strategy);
+        }
+        if (boundDimension == null) return;
+
+        List<String> ids = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        for (int id : slots) {
+            ItemStack stack = handler.slots.get(id).getStack();
+            if (!stack.isOf(Items.ENCHANTED_BOOK)) continue;
+            NbtList stored = EnchantedBookItem.getEnchantmentNbt(stack);
+            for (int i = 0; i < stored.size(); i++) {
+                NbtCompound ench = stored.getCompound(i);
+                Identifier enchantId = Identifier.tryParse(ench.getString("id"));
+                if (enchantId == null) continue;
+                add(ids, levels, counts, enchantId.toString(), ench.getInt("lvl"), stack.getCount());
+            }
+        }
+        String[] idArr = ids.toArray(new String[0]);
+        int[] levelArr = levels.stream().mapToInt(Integer::intValue).toArray();
+        int[] countArr = counts.stream().mapToInt(Integer::intValue).toArray();
+        // 翻页、拿取物品等都会触发重新扫描，书没有变化时不必打扰索引线程
+        if (Arrays.equals(idArr, lastIds) && Arrays.equals(levelArr, lastLevels) && Arrays.equals(countArr, lastCounts)) return;
+        lastIds = idArr;
+        lastLevels = levelArr;
+        lastCounts = countArr;
+
+        String dimension = boundDimension;
+        long pos = boundPos;
+        long time = System.currentTimeMillis();
+        executor.execute(() -> {
+            if (index == null) return;
+            index.put(dimension, pos, time, idArr, levelArr, countArr);
+            scheduleFlush();
+        });
+    }
+
+    /**
+     * 在当前世界的索引中查找含有指定附魔的容器（中文名、英文 id 均可，部分匹配），结果在索引线程上算出
+     */
+    public CompletableFuture<List<BookIndex.Hit>> search(String query, int limit) {
+        Set<String> enchantIds = resolveEnchantIds(query);
+        return CompletableFuture.supplyAsync(() -> {
+            if (index == null || enchantIds.isEmpty()) return List.<BookIndex.Hit>of();
+            return index.search(enchantIds, limit);
+        }, executor);
+    }
+
+    // 把刚右键的方块坐标绑定到新打开的界面上（只用一次）
+    private void bind(ScreenHandler handler, ContainerStrategy strategy) {
+        boundHandler = handler;
+        boundDimension = null;
+        lastIds = null;
+        lastLevels = null;
+        lastCounts = null;
+        boolean recent = useDimension != null && System.currentTimeMillis() - useTime <= BIND_TIMEOUT_MS;
+        if (recent && !SKIPPED_STRATEGIES.contains(strategy.id())) {
+            boundDimension = useDimension;
+            boundPos = usePos;
+        }
+        useDimension = null;
+    }
+
+    private static void add(List<String> ids, List<Integer> levels, List<Integer> counts, String id, int level, int count) {
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i).equals(id) && levels.get(i) == level) {
+                counts.set(i, counts.get(i) + count);
+                return;
+            }
+        }
+        ids.add(id);
+        levels.add(level);
+        counts.add(count);
+    }
+
+    /**
+     * 搜索词 -> 附魔 id：中文名（规范化后部分匹配，见 NameNormalizer）或注册表 id 的一部分
+     */
+    static Set<String> resolveEnchantIds(String query) {
+        Set<String> result = new LinkedHashSet<>();
+        String key = NameNormalizer.normalize(query);
+        if (key.isEmpty()) return result;
+        EnchantNameIndex names = ConfigManager.getInstance().getSnapshot().getIndex();
+        for (Map.Entry<String, int[]> e : names.getNames().entrySet()) {
+            if (!e.getKey().contains(key)) continue;
+            for (int rawId : e.getValue()) {
+                addEnchant(result, Registries.ENCHANTMENT.get(rawId));
+            }
+        }
+        for (Enchantment enchantment : Registries.ENCHANTMENT) {
+            Identifier id = Registries.ENCHANTMENT.getId(enchantment);
+            if (id != null && NameNormalizer.normalize(id.toString()).contains(key)) {
+                result.add(id.toString());
+            }
+        }
+        return result;
+    }
+
+    private static void addEnchant(Collection<String> out, Enchantment enchantment) {
+        Identifier id = enchantment != null ? Registries.ENCHANTMENT.getId(enchantment) : null;
+        if (id != null) {
+            out.add(id.toString());
+        }
+    }
+
+    private void openWorld(String name) {
+        this.world = name;
+        this.boundHandler = null;
+        this.boundDimension = null;
+        Path dir = name != null
+                ? ConfigManager.getInstance().getConfigDir().resolve(DIR_NAME).resolve(BookIndex.fileName(name))
+                : null;
+        executor.execute(() -> {
+            closeIndex();
+            index = dir != null ? new BookIndex(dir) : null;
+        });
+    }
+
+    // 索引线程：写回并关闭当前世界的索引
+    private void closeIndex() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        flush();
+        index = null;
+    }
+
+    // 索引线程：短时间内的多次修改合并成一次落盘
+    private void scheduleFlush() {
+        if (pendingFlush != null && !pendingFlush.isDone()) return;
+        pendingFlush = executor.schedule(this::flush, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void flush() {
+        if (index == null) return;
+        try {
+            index.flush();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // 单人存档用存档名，多人游戏用服务器地址
+    private static String worldName(MinecraftClient client) {
+        if (client.isIntegratedServerRunning() && client.getServer() != null) {
+            return "singleplayer-" + client.getServer().getSaveProperties().getLevelName();
+        }
+        ServerInfo server = client.getCurrentServerEntry();
+        return server != null ? "server-" + server.address : "server-unknown";
+    }
+}
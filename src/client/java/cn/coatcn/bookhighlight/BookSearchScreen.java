@@ -0,0 +1,158 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.client.gui.widget.TextFieldWidget;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.registry.Registries;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+
+/**
+ * 附魔书搜索界面：“我在哪个箱子里见过经验修补？”
+ * 1）输入中文名或英文 id 的一部分，每次修改都在索引线程上重新搜索（见 BookIndexRecorder），只显示最后一次的结果
+ * 2）结果按最后看到的时间从近到远排列：附魔与等级、本数、维度与坐标、距离（同一维度时）、多久以前
+ * 3）滚轮翻动结果列表
+ */
+public class BookSearchScreen extends Screen {
+
+    private static final int MAX_RESULTS = 200;
+    private static final int ROW_HEIGHT = 12;
+    private static final int LIST_TOP = 64;
+
+    private final Screen parent;
+    private final String initialQuery;
+    private TextFieldWidget queryField;
+    private List<BookIndex.Hit> results = List.of();
+    private String status = "";
+    private int searchSeq = 0;
+    private int scroll = 0;
+
+    public BookSearchScreen(Screen parent, String initialQuery) {
+        super(Text.literal("搜索附魔书"));
+        this.parent = parent;
+        this.initialQuery = initialQuery != null ? initialQuery : "";
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        String query = queryField != null ? queryField.getText() : initialQuery;
+        queryField = new TextFieldWidget(textRenderer, width / 2 - 100, 30, 200, 20, Text.literal("query"));
+        queryField.setMaxLength(64);
+        queryField.setText(query);
+        queryField.setChangedListener(this::search);
+        addDrawableChild(queryField);
+        setInitialFocus(queryField);
+
+        addDrawableChild(ButtonWidget.builder(Text.literal("Done"), btn -> close())
+                .dimensions(width / 2 - 40, height - 28, 80, 20)
+                .build());
+        search(query);
+    }
+
+    private void search(String query) {
+        int seq = ++searchSeq;
+        scroll = 0;
+        if (query.isBlank()) {
+            results = List.of();
+            status = "输入附魔名称（中文名或英文 id 的一部分）";
+            return;
+        }
+        status = "搜索中…";
+        long start = System.nanoTime();
+        MinecraftClient client = MinecraftClient.getInstance();
+        BookIndexRecorder.getInstance().search(query, MAX_RESULTS).whenComplete((hits, error) -> client.execute(() -> {
+            if (seq != searchSeq) return;
+            if (error != null) {
+                results = List.of();
+                status = "搜索失败：" + error.getMessage();
+                return;
+            }
+            results = hits;
+            status = hits.isEmpty()
+                    ? "索引里没有找到"
+                    : String.format("%d 条（%.1f ms）", hits.size(), (System.nanoTime() - start) / 1_000_000.0);
+        }));
+    }
+
+    @Override
+    public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        renderBackground(context, mouseX, mouseY, delta);
+        super.render(context, mouseX, mouseY, delta);
+        context.drawCenteredTextWithShadow(textRenderer, title, width / 2, 12, 0xFFFFFF);
+        context.drawCenteredTextWithShadow(textRenderer, status, width / 2, 52, 0xA0A0A0);
+
+        int rows = visibleRows();
+        long now = System.currentTimeMillis();
+        int left = width / 2 - 150;
+        for (int i = 0; i < rows && scroll + i < results.size(); i++) {
+            BookIndex.Hit hit = results.get(scroll + i);
+            context.drawTextWithShadow(textRenderer, describe(hit, now), left, LIST_TOP + i * ROW_HEIGHT, 0xFFFFFF);
+        }
+    }
+
+    @Override
+    public boolean mouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
+        int max = Math.max(0, results.size() - visibleRows());
+        scroll = Math.max(0, Math.min(max, scroll - (int) Math.signum(verticalAmount) * 3));
+        return true;
+    }
+
+    private int visibleRows() {
+        return Math.max(1, (height - 36 - LIST_TOP) / ROW_HEIGHT);
+    }
+
+    private Text describe(BookIndex.Hit hit, long now) {
+        MutableText line = Text.empty();
+        Identifier id = Identifier.tryParse(hit.getEnchantId());
+        Enchantment enchantment = id != null ? Registries.ENCHANTMENT.get(id) : null;
+        line.append(enchantment != null
+                ? enchantment.getName(hit.getLevel())
+                : Text.literal(hit.getEnchantId() + " " + hit.getLevel()));
+        if (hit.getCount() > 1) {
+            line.append(Text.literal(" ×" + hit.getCount()).formatted(Formatting.YELLOW));
+        }
+        String dimension = hit.getDimension().startsWith("minecraft:")
+                ? hit.getDimension().substring("minecraft:".length())
+                : hit.getDimension();
+        line.append(Text.literal(String.format("  %s (%d, %d, %d)", dimension, hit.getX(), hit.getY(), hit.getZ()))
+                .formatted(Formatting.GRAY));
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player != null && client.world != null
+                && client.world.getRegistryKey().getValue().toString().equals(hit.getDimension())) {
+            double dx = hit.getX() + 0.5 - client.player.getX();
+            double dy = hit.getY() + 0.5 - client.player.getY();
+            double dz = hit.getZ() + 0.5 - client.player.getZ();
+            line.append(Text.literal(String.format("  %.0fm", Math.sqrt(dx * dx + dy * dy + dz * dz)))
+                    .formatted(Formatting.AQUA));
+        }
+        line.append(Text.literal("  " + ago(now - hit.getTime())).formatted(Formatting.DARK_GRAY));
+        return line;
+    }
+
+    private static String ago(long millis) {
+        long minutes = Math.max(0L, millis) / 60_000L;
+        if (minutes < 1) return "刚刚";
+        if (minutes < 60) return minutes + " 分钟前";
+        long hours = minutes / 60;
+        if (hours < 24) return hours + " 小时前";
+        return hours / 24 + " 天前";
+    }
+
+    @Override
+    public void close() {
+        MinecraftClient.getInstance().setScreen(parent);
+    }
+
+    @Override
+    public boolean shouldPause() {
+        return false;
+    }
+}
@@ -0,0 +1,276 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.HighlightRule;
+import net.minecraft.item.ItemStack;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 单个容器界面的高亮状态：
+ * 1）打开界面时由扫描策略（ContainerStrategy）确定一次要扫描的格子
+ * 2）仅在 ScreenHandler 的 revision（初次同步、格子更新、整包内容）或配置代数变化时重新扫描，结果存入位图
+ * 3）绘制时只查位图；另外逐格比对物品栈引用，兜住客户端预测点击后服务端不再下发更新的情况
+ * 4）同时记下每格的命中数量（潜影盒 / 收纳袋内部的附魔书数），供绘制数量角标
+ * 5）以及命中的规则，绘制时取规则颜色；规则没有颜色时用全局颜色
+ * 6）重新扫描不在一帧内做完：需要求值的格子记入 pending，每帧在 frameBudgetMicros 的预算内按
+ *    悬停格 -> 可见格（Slot#isEnabled）-> 其余格子的顺序求值，高亮逐帧补齐；每帧至少推进一格。
+ *    物品栈未变的格子在重新扫描期间保留原来的高亮，避免闪烁；配置变化时全部清空重算
+ * 7）开启后台求值（matchThreads）时，渲染线程对未命中缓存的格子只做快照，按批交给 MatchPipeline，
+ *    这些格子记入 inFlight；算完的批次在之后某一帧开始时取回，物品栈引用与配置代数都没变才写入位图。
+ *    位图只在渲染线程上读写，绘制时仍只查位图
+ */
+public class ContainerHighlighter {
+
+    private final ScreenHandler handler;
+    private final ContainerStrategy strategy;
+    private final int[] slots;
+    private final BitSet scanned = new BitSet();
+    private final BitSet highlighted = new BitSet();
+    private final BitSet pending = new BitSet();
+    private final BitSet inFlight = new BitSet();
+    private final Queue<MatchPipeline.Batch> completed = new ConcurrentLinkedQueue<>();
+    private final int[] order;
+    private final ItemStack[] seen;
+    private final int[] results;
+    private int cursor;
+    private int revision = -1;
+    private long generation = -1L;
+    private MatchPipeline.Batch batch; // 本帧正在攒的一批（只在 evaluatePending 期间非空）
+
+    // 进行中的一次重新扫描（可能跨越多帧）
+    private ContainerScanEvent scanEvent;
+    private long scanNanos;
+    private int scanFrames;
+    private long missesAtStart;
+
+    public ContainerHighlighter(ScreenHandler handler, ContainerStrategy strategy) {
+        this.handler = handler;
+        this.strategy = strategy;
+        this.slots = strategy.slots(handler);
+        for (int id : slots) {
+            scanned.set(id);
+        }
+        this.order = new int[slots.length];
+        this.seen = new ItemStack[handler.slots.size()];
+        this.results = new int[handler.slots.size()];
+    }
+
+    /**
+     * 每帧调用一次：内容或配置有变化时开始重新扫描，然后在本帧预算内推进待求值的格子
+     *
+     * @param hovered 鼠标所在的格子（可为 null），最先求值
+     */
+    public void refresh(Slot hovered) {
+        MatchPipeline.Batch done;
+        while ((done = completed.poll()) != null) {
+            merge(done);
+        }
+        int rev = handler.getRevision();
+        long gen = ConfigManager.getInstance().getGeneration();
+        if (rev != revision || gen != generation) {
+            beginScan(gen != generation);
+            revision = rev;
+            generation = gen;
+        }
+        if (!pending.isEmpty()) {
+            evaluatePending(hovered);
+        }
+        if (scanEvent != null) {
+            scanFrames++;
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                finishScan();
+            }
+        }
+    }
+
+    private void beginScan(boolean configChanged) {
+        if (scanEvent == null) {
+            scanEvent = new ContainerScanEvent();
+            scanEvent.begin();
+            scanNanos = 0L;
+            scanFrames = 0;
+            missesAtStart = MatchCache.getInstance().getMisses();
+        }
+        if (configChanged) {
+            // 还在后台的旧代数批次取回时会被丢弃
+            highlighted.clear();
+            inFlight.clear();
+        }
+        // 可见的格子排在前面（模组的大型存储界面常把翻页之外的格子禁用）
+        int n = 0;
+        for (int id : slots) {
+            if (handler.slots.get(id).isEnabled()) order[n++] = id;
+        }
+        for (int id : slots) {
+            if (!handler.slots.get(id).isEnabled()) order[n++] = id;
+        }
+        cursor = 0;
+        for (int id : slots) {
+            ItemStack stack = handler.slots.get(id).getStack();
+            if (stack != seen[id]) {
+                // 换了物品的格子旧结果已无意义，立即去掉高亮
+                seen[id] = stack;
+                highlighted.clear(id);
+                results[id] = 0;
+                inFlight.clear(id);
+            }
+            // 物品栈没变、结果还在后台计算的格子不必重复提交
+            if (!inFlight.get(id)) {
+                pending.set(id);
+            }
+        }
+    }
+
+    private void evaluatePending(Slot hovered) {
+        long budget = ConfigManager.getInstance().getFrameBudgetNanos();
+        long t0 = System.nanoTime();
+        if (MatchPipeline.getInstance().isEnabled()) {
+            batch = new MatchPipeline.Batch(ConfigManager.getInstance().getSnapshot());
+        }
+        if (hovered != null && pending.get(hovered.id)) {
+            evaluate(hovered.id);
+        }
+        int done = 0;
+        while (cursor < order.length) {
+            int id = order[cursor];
+            if (pending.get(id)) {
+                // 预算用完就留到下一帧；但每帧至少推进一格，避免预算过小时永远算不完
+                if (budget > 0L && done > 0 && System.nanoTime() - t0 >= budget) break;
+                evaluate(id);
+                done++;
+            }
+            cursor++;
+        }
+        if (batch != null) {
+            submitBatch();
+            batch = null;
+        }
+        scanNanos += System.nanoTime() - t0;
+    }
+
+    private void evaluate(int id) {
+        ItemStack stack = handler.slots.get(id).getStack();
+        seen[id] = stack;
+        pending.clear(id);
+        if (batch == null) {
+            apply(id, MatchCache.getInstance().match(stack));
+            return;
+        }
+        TargetSnapshot snapshot = batch.getSnapshot();
+        int result = MatchCache.getInstance().peek(stack, snapshot);
+        if (result < 0) {
+            result = batch.add(id, stack);
+        }
+        if (result < 0) {
+            inFlight.set(id);
+            if (batch.size() >= MatchPipeline.BATCH_SIZE) {
+                // 一批满了就先交出去，大容器的求值分散到多个后台线程
+                submitBatch();
+                batch = new MatchPipeline.Batch(snapshot);
+            }
+            return;
+        }
+        apply(id, result);
+    }
+
+    private void submitBatch() {
+        if (!batch.isEmpty()) {
+            MatchPipeline.getInstance().submit(batch, completed);
+        }
+    }
+
+    // 取回一批后台结果：旧代数的整批丢弃；否则写入缓存，格子仍在等待且物品栈没变时才更新高亮
+    private void merge(MatchPipeline.Batch done) {
+        if (done.getGeneration() != generation) return;
+        done.publishToCaches();
+        for (int i = 0; i < done.size(); i++) {
+            int id = done.getSlot(i);
+            if (inFlight.get(id) && seen[id] == done.getStack(i)) {
+                inFlight.clear(id);
+                apply(id, done.getResult(i));
+            }
+        }
+    }
+
+    private void apply(int id, int result) {
+        results[id] = result;
+        highlighted.set(id, MatchCache.countOf(result) > 0);
+    }
+
+    // 全部格子都已求值：记录统计，交给录制与索引
+    private void finishScan() {
+        ContainerScanEvent event = scanEvent;
+        scanEvent = null;
+        HighlightStats.getInstance().recordScan(scanNanos, slots.length, highlighted.cardinality());
+        if (event.shouldCommit()) {
+            event.slots = slots.length;
+            event.matches = highlighted.cardinality();
+            event.cacheMisses = MatchCache.getInstance().getMisses() - missesAtStart;
+            event.generation = generation;
+            event.frames = scanFrames;
+            event.commit();
+        }
+        ContainerRecorder.getInstance().record(handler, slots);
+        BookIndexRecorder.getInstance().record(handler, strategy, slots);
+    }
+
+    public boolean isHighlighted(Slot slot) {
+        int id = slot.id;
+        if (!scanned.get(id)) return false;
+        ItemStack stack = slot.getStack();
+        if (stack != seen[id]) {
+            // 客户端预测造成的变化不会带来新的 revision，这一格留到下一帧按预算补算
+            seen[id] = stack;
+            results[id] = 0;
+            highlighted.clear(id);
+            inFlight.clear(id);
+            pending.set(id);
+            cursor = 0;
+        }
+        return highlighted.get(id);
+    }
+
+    /**
+     * 该格的命中数量（需先调用 isHighlighted）
+     */
+    public int getCount(Slot slot) {
+        return scanned.get(slot.id) ? MatchCache.countOf(results[slot.id]) : 0;
+    }
+
+    /**
+     * 该格的高亮颜色：命中规则的颜色，规则没有指定时为 defaultColor（需先调用 isHighlighted）
+     */
+    public int getColor(Slot slot, int defaultColor) {
+        if (!scanned.get(slot.id)) return defaultColor;
+        int color = ConfigManager.getInstance().getSnapshot().getMatcher()
+                .getColor(MatchCache.ruleOf(results[slot.id]));
+        return color != HighlightRule.NO_COLOR ? color : defaultColor;
+    }
+
+    public ScreenHandler getHandler() {
+        return handler;
+    }
+
+    public ContainerStrategy getStrategy() {
+        return strategy;
+    }
+
+    public int[] getSlots() {
+        return slots;
+    }
+
+    public int getHighlightedCount() {
+        return highlighted.cardinality();
+    }
+
+    /**
+     * 还没有结果的格子数（逐帧补齐中，或在后台求值中）
+     */
+    public int getPendingCount() {
+        return pending.cardinality() + inFlight.cardinality();
+    }
+}
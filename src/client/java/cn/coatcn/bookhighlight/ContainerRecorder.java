@@ -0,0 +1,85 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.util.Identifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 调试用的容器录制（配置项 recordContainers，默认关闭）：
+ * 1）容器内容每次重新扫描时，在客户端线程上复制格子 NBT；内容与上一次录制相同或容器全空时跳过
+ * 2）压缩写入 config/book_highlight/recordings/ 交给后台单线程完成，不阻塞渲染
+ * 3）录制文件可用 ./gradlew replay 离线回放（见 src/jmh 下的 ContainerReplay）
+ */
+public class ContainerRecorder {
+
+    private static final String DIR_NAME = "recordings";
+
+    private static final ContainerRecorder INSTANCE = new ContainerRecorder();
+
+    public static ContainerRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "BookHighlight-Recorder");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private ContainerRecording last;
+
+    private ContainerRecorder() {}
+
+    /**
+     * 录制扫描策略选出的格子（按 slots 的顺序）；未开启录制时什么也不做
+     */
+    public void record(ScreenHandler handler, int[] slots) {
+        ConfigManager cfg = ConfigManager.getInstance();
+        if (!cfg.isRecordContainers()) return;
+
+        List<ItemStack> stacks = new ArrayList<>(slots.length);
+        for (int id : slots) {
+            stacks.add(handler.slots.get(id).getStack());
+        }
+        ContainerRecording recording = ContainerRecording.capture(screenId(handler), stacks, cfg.getSnapshot());
+        if (recording.isEmpty() || recording.hasSameSlots(last)) return;
+        last = recording;
+
+        Path file = cfg.getConfigDir().resolve(DIR_NAME).resolve(fileName(recording.getTime()));
+        executor.execute(() -> {
+            try {
+                Files.createDirectories(file.getParent());
+                recording.write(file);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private String fileName(long time) {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(time));
+        return stamp + "-" + counter.incrementAndGet() + ContainerRecording.FILE_SUFFIX;
+    }
+
+    private static String screenId(ScreenHandler handler) {
+        try {
+            Identifier id = Registries.SCREEN_HANDLER.getId(handler.getType());
+            return id != null ? id.toString() : handler.getClass().getSimpleName();
+        } catch (UnsupportedOperationException e) {
+            // 玩家背包等没有注册类型的界面
+            return handler.getClass().getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.screen.CrafterScreenHandler;
+import net.minecraft.screen.Generic3x3ContainerScreenHandler;
+import net.minecraft.screen.GenericContainerScreenHandler;
+import net.minecraft.screen.HopperScreenHandler;
+import net.minecraft.screen.HorseScreenHandler;
+import net.minecraft.screen.MerchantScreenHandler;
+import net.minecraft.screen.PlayerScreenHandler;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.ShulkerBoxScreenHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 容器扫描策略注册表：
+ * 1）按 ScreenHandler 的具体类注册；查找时先看类本身，再沿父类向上找，子类可以继承父类的策略
+ * 2）查找结果用 ClassValue 按类缓存，每帧只是一次 O(1) 的取值，不再逐个 instanceof
+ * 3）注册新策略时换一个新的 ClassValue，旧的缓存随之作废
+ * 4）是否启用由配置决定（ConfigManager.isScreenEnabled），没写明时取策略自己的默认值
+ *
+ * 注：注册一般发生在客户端初始化阶段；查找在渲染线程。
+ */
+public class ContainerStrategies {
+
+    private static final ContainerStrategies INSTANCE = new ContainerStrategies();
+
+    public static ContainerStrategies getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<Class<? extends ScreenHandler>, ContainerStrategy> byClass = new LinkedHashMap<>();
+    private volatile ClassValue<ContainerStrategy> cache = newCache();
+
+    private ContainerStrategies() {
+        // 普通箱子、大箱子、木桶、末影箱以及服务端用 9xN 界面做的菜单
+        register(GenericContainerScreenHandler.class, ContainerStrategy.containerSlots("generic"));
+        register(ShulkerBoxScreenHandler.class, ContainerStrategy.containerSlots("shulker_box"));
+        register(HopperScreenHandler.class, ContainerStrategy.containerSlots("hopper"));
+        // 发射器、投掷器
+        register(Generic3x3ContainerScreenHandler.class, ContainerStrategy.containerSlots("dispenser"));
+        // 马鞍与马铠格子在最前面，其后是箱子格子（驴、骡、羊驼），同属容器部分
+        register(HorseScreenHandler.class, ContainerStrategy.containerSlots("horse"));
+        // 合成器：9 个输入格在玩家背包之前，输出格在最后，不扫描
+        register(CrafterScreenHandler.class, ContainerStrategy.containerSlots("crafter"));
+        // 村民 / 流浪商人：两个购买格与输出格；交易列表里的出售物品另见 MerchantHighlighter
+        register(MerchantScreenHandler.class, ContainerStrategy.containerSlots("merchant"));
+        // 玩家背包界面：默认关闭
+        register(PlayerScreenHandler.class, ContainerStrategy.playerInventory("player", false));
+    }
+
+    private ClassValue<ContainerStrategy> newCache() {
+        return new ClassValue<>() {
+            @Override
+            protected ContainerStrategy computeValue(Class<?> type) {
+                synchronized (ContainerStrategies.this) {
+                    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                        ContainerStrategy s = byClass.get(c);
+                        if (s != null) return s;
+                    }
+                    return null;
+                }
+            }
+        };
+    }
+
+    /**
+     * 注册（或替换）某个 ScreenHandler 类的策略；同一个 id 可用于多个类，共用一个配置开关
+     */
+    public synchronized void register(Class<? extends ScreenHandler> handlerClass, ContainerStrategy strategy) {
+        byClass.put(handlerClass, strategy);
+        cache = newCache();
+    }
+
+    /**
+     * 该界面对应的策略；没有注册、或被配置关闭时返回 null
+     */
+    public ContainerStrategy find(ScreenHandler handler) {
+        if (handler == null) return null;
+        ContainerStrategy strategy = cache.get(handler.getClass());
+        if (strategy == null) return null;
+        return ConfigManager.getInstance().isScreenEnabled(strategy.id(), strategy.isEnabledByDefault()) ? strategy : null;
+    }
+
+    /**
+     * 已注册的策略（按 id 去重、保持注册顺序），供设置界面列出开关
+     */
+    public synchronized List<ContainerStrategy> getStrategies() {
+        Map<String, ContainerStrategy> unique = new LinkedHashMap<>();
+        for (ContainerStrategy s : byClass.values()) {
+            unique.putIfAbsent(s.id(), s);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(unique.values()));
+    }
+}
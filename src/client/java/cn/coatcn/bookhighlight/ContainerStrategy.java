@@ -0,0 +1,90 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.screen.ScreenHandler;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * 某类容器界面的扫描策略：
+ * 1）id 用于配置文件中按界面类型开关（"screens": {"hopper": false}）
+ * 2）slots 给出要扫描的格子序号（ScreenHandler.slots 的下标，升序），只在打开界面时调用一次
+ * 3）enabledByDefault：配置里没有写明时是否启用
+ *
+ * 内置策略见 ContainerStrategies；其他模组可通过 BookHighlightApi 入口注册自己的策略。
+ */
+public final class ContainerStrategy {
+
+    private final String id;
+    private final Function<ScreenHandler, int[]> slots;
+    private final boolean enabledByDefault;
+
+    public ContainerStrategy(String id, Function<ScreenHandler, int[]> slots, boolean enabledByDefault) {
+        this.id = id;
+        this.slots = slots;
+        this.enabledByDefault = enabledByDefault;
+    }
+
+    /**
+     * 容器自己的格子：从头开始，遇到第一个玩家背包格子即结束（箱子、漏斗、发射器等原版容器都是这种布局）
+     */
+    public static ContainerStrategy containerSlots(String id) {
+        return new ContainerStrategy(id, ContainerStrategy::leadingContainerSlots, true);
+    }
+
+    /**
+     * 固定的格子区间 [from, to)，超出实际格子数的部分会被截掉
+     */
+    public static ContainerStrategy range(String id, int from, int to, boolean enabledByDefault) {
+        return new ContainerStrategy(id, handler -> {
+            int end = Math.min(to, handler.slots.size());
+            int start = Math.min(from, end);
+            int[] ids = new int[end - start];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = start + i;
+            }
+            return ids;
+        }, enabledByDefault);
+    }
+
+    /**
+     * 属于玩家背包的全部格子（玩家背包界面本身）
+     */
+    public static ContainerStrategy playerInventory(String id, boolean enabledByDefault) {
+        return new ContainerStrategy(id, handler -> {
+            int[] ids = new int[handler.slots.size()];
+            int n = 0;
+            for (int i = 0; i < handler.slots.size(); i++) {
+                if (handler.slots.get(i).inventory instanceof PlayerInventory) {
+                    ids[n++] = i;
+                }
+            }
+            return Arrays.copyOf(ids, n);
+        }, enabledByDefault);
+    }
+
+    private static int[] leadingContainerSlots(ScreenHandler handler) {
+        int n = 0;
+        while (n < handler.slots.size() && !(handler.slots.get(n).inventory instanceof PlayerInventory)) {
+            n++;
+        }
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+        return ids;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public int[] slots(ScreenHandler handler) {
+        return slots.apply(handler);
+    }
+
+    public boolean isEnabledByDefault() {
+        return enabledByDefault;
+    }
+}
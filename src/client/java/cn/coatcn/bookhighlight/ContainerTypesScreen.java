@@ -0,0 +1,68 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.text.Text;
+
+import java.util.List;
+
+/**
+ * 按界面类型开关高亮：每个已注册的扫描策略一个按钮，两列排布。
+ * 修改立即写入配置，下次打开对应界面时生效。
+ */
+public class ContainerTypesScreen extends Screen {
+
+    private final Screen parent;
+
+    public ContainerTypesScreen(Screen parent) {
+        super(Text.literal("容器类型"));
+        this.parent = parent;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        List<ContainerStrategy> strategies = ContainerStrategies.getInstance().getStrategies();
+        int left = width / 2 - 155;
+        int top = 40;
+        for (int i = 0; i < strategies.size(); i++) {
+            ContainerStrategy strategy = strategies.get(i);
+            int x = left + (i % 2) * 160;
+            int y = top + (i / 2) * 24;
+            addDrawableChild(ButtonWidget.builder(getToggleText(strategy), btn -> {
+                ConfigManager cfg = ConfigManager.getInstance();
+                cfg.setScreenEnabled(strategy.id(), !cfg.isScreenEnabled(strategy.id(), strategy.isEnabledByDefault()));
+                btn.setMessage(getToggleText(strategy));
+            }).dimensions(x, y, 150, 20).build());
+        }
+
+        int doneY = top + ((strategies.size() + 1) / 2) * 24 + 10;
+        addDrawableChild(ButtonWidget.builder(Text.literal("Done"), btn -> close())
+                .dimensions(width / 2 - 100, doneY, 200, 20)
+                .build());
+    }
+
+    private Text getToggleText(ContainerStrategy strategy) {
+        boolean enabled = ConfigManager.getInstance().isScreenEnabled(strategy.id(), strategy.isEnabledByDefault());
+        return Text.literal(strategy.id() + ": " + (enabled ? "开" : "关"));
+    }
+
+    @Override
+    public void close() {
+        MinecraftClient.getInstance().setScreen(parent);
+    }
+
+    @Override
+    public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        renderBackground(context, mouseX, mouseY, delta);
+        super.render(context, mouseX, mouseY, delta);
+        context.drawCenteredTextWithShadow(textRenderer, title, width / 2, 20, 0xFFFFFF);
+    }
+
+    @Override
+    public boolean shouldPause() {
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.EnchantNameIndex;
+import cn.coatcn.bookhighlight.core.NameNormalizer;
+import cn.coatcn.bookhighlight.core.PrefixTrie;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
+import net.minecraft.client.resource.language.TranslationStorage;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.registry.Registries;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.Identifier;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 资源重载监听：
+ * 1）无论客户端当前语言是什么，都单独加载一份 zh_cn 翻译
+ * 2）对每个已注册附魔取其翻译键的中文名，规范化后反向建立“中文名 -> raw id”映射
+ * 3）同时建立“NBT id 字符串 -> raw id”映射，交给 ConfigManager 重建目标快照
+ * 4）再建一棵“规范化的中文名 / 英文 id -> 中文名”的前缀树，供编辑界面自动补全
+ *
+ * 切换语言或重载资源包时会再次触发。
+ */
+public class EnchantNameReloader implements SimpleSynchronousResourceReloadListener {
+
+    private static final Identifier ID = new Identifier("book_highlight", "enchant_names");
+    private static final String SOURCE_LANGUAGE = "zh_cn";
+
+    private static volatile PrefixTrie completions = PrefixTrie.EMPTY;
+
+    /**
+     * 附魔中文名的自动补全（键已规范化，见 NameNormalizer）
+     */
+    public static PrefixTrie getCompletions() {
+        return completions;
+    }
+
+    @Override
+    public Identifier getFabricId() {
+        return ID;
+    }
+
+    @Override
+    public void reload(ResourceManager manager) {
+        TranslationStorage zh = TranslationStorage.load(manager, List.of(SOURCE_LANGUAGE), false);
+
+        Map<String, IntArrayList> byName = new HashMap<>();
+        Map<String, Integer> byKey = new HashMap<>();
+        Map<String, String> completionMap = new LinkedHashMap<>();
+        for (Enchantment enchantment : Registries.ENCHANTMENT) {
+            Identifier id = Registries.ENCHANTMENT.getId(enchantment);
+            if (id == null) continue;
+            int rawId = Registries.ENCHANTMENT.getRawId(enchantment);
+
+            // NBT 里一般写完整 id，少数旧数据省略了 minecraft 命名空间
+            byKey.put(id.toString(), rawId);
+            if (Identifier.DEFAULT_NAMESPACE.equals(id.getNamespace())) {
+                byKey.put(id.getPath(), rawId);
+            }
+
+            String nameCn = zh.get(enchantment.getTranslationKey(), null);
+            String key = nameCn != null ? NameNormalizer.normalize(nameCn) : "";
+            if (!key.isEmpty()) {
+                byName.computeIfAbsent(key, k -> new IntArrayList()).add(rawId);
+                completionMap.putIfAbsent(key, nameCn.trim());
+                completionMap.putIfAbsent(NameNormalizer.normalize(id.getPath()), nameCn.trim());
+            }
+        }
+        completions = new PrefixTrie(completionMap);
+
+        Map<String, int[]> names = new HashMap<>();
+        byName.forEach((name, ids) -> names.put(name, ids.toIntArray()));
+        ConfigManager.getInstance().setEnchantNameIndex(new EnchantNameIndex(names, byKey));
+    }
+}
@@ -0,0 +1,100 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+
+/**
+ * 高亮绘制：
+ * 1）批量模式下，格子循环中只记录需要高亮的格子左上角坐标与颜色（规则可以各有颜色）
+ * 2）所有格子画完后在一次 DrawContext.draw 回调内集中提交，整批四边形只刷新一次缓冲
+ * 3）非批量模式保持原来的逐格 fill
+ * 4）容器物品（潜影盒 / 收纳袋）可在左上角附带内部命中数量的角标，随高亮一起提交
+ */
+public class HighlightRenderer {
+
+    private static final int SIZE = 16;
+    private static final int BADGE_COLOR = 0xFFFFFF55;
+    // 角标画在物品与物品数量之上
+    private static final float BADGE_Z = 300.0F;
+
+    private int[] rects = new int[96];
+    private int count = 0;
+    private int[] badges = new int[96];
+    private int badgeCount = 0;
+
+    public void add(int left, int top, int color) {
+        if (count * 3 + 3 > rects.length) {
+            int[] grown = new int[rects.length * 2];
+            System.arraycopy(rects, 0, grown, 0, count * 3);
+            rects = grown;
+        }
+        rects[count * 3] = left;
+        rects[count * 3 + 1] = top;
+        rects[count * 3 + 2] = color;
+        count++;
+    }
+
+    public void addBadge(int left, int top, int value) {
+        if (badgeCount * 3 + 3 > badges.length) {
+            int[] grown = new int[badges.length * 2];
+            System.arraycopy(badges, 0, grown, 0, badgeCount * 3);
+            badges = grown;
+        }
+        badges[badgeCount * 3] = left;
+        badges[badgeCount * 3 + 1] = top;
+        badges[badgeCount * 3 + 2] = value;
+        badgeCount++;
+    }
+
+    public int size() {
+        return count + badgeCount;
+    }
+
+    /**
+     * 一次性绘制本帧收集到的全部高亮，然后清空
+     */
+    @SuppressWarnings("deprecation")
+    public void flush(DrawContext context, HighlightStyle style) {
+        if (count == 0 && badgeCount == 0) return;
+        context.draw(() -> {
+            for (int i = 0; i < count; i++) {
+                draw(context, rects[i * 3], rects[i * 3 + 1], rects[i * 3 + 2], style);
+            }
+        });
+        if (badgeCount > 0) {
+            TextRenderer textRenderer = MinecraftClient.getInstance().textRenderer;
+            for (int i = 0; i < badgeCount; i++) {
+                drawBadge(context, textRenderer, badges[i * 3], badges[i * 3 + 1], badges[i * 3 + 2]);
+            }
+        }
+        count = 0;
+        badgeCount = 0;
+    }
+
+    public void clear() {
+        count = 0;
+        badgeCount = 0;
+    }
+
+    public static void draw(DrawContext context, int left, int top, int color, HighlightStyle style) {
+        switch (style) {
+            case OUTLINE -> context.drawBorder(left, top, SIZE, SIZE, color);
+            case GRADIENT -> context.fillGradient(left, top, left + SIZE, top + SIZE, color, halfAlpha(color));
+            default -> context.fill(left, top, left + SIZE, top + SIZE, color);
+        }
+    }
+
+    public static void drawBadge(DrawContext context, TextRenderer textRenderer, int left, int top, int value) {
+        context.getMatrices().push();
+        context.getMatrices().translate(0.0F, 0.0F, BADGE_Z);
+        context.drawTextWithShadow(textRenderer, Integer.toString(value), left, top, BADGE_COLOR);
+        context.getMatrices().pop();
+    }
+
+    // 渐变底部的颜色：不透明度减半，RGB 不变
+    private static int halfAlpha(int color) {
+        int alpha = (color >>> 24) / 2;
+        return (alpha << 24) | (color & 0x00FFFFFF);
+    }
+}
@@ -0,0 +1,49 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.HighlightRule;
+import net.minecraft.village.TradeOfferList;
+
+/**
+ * 村民交易界面的交易项高亮：
+ * 1）客户端每收到一次交易列表数据包，MerchantScreenHandler 就换上一个新的 TradeOfferList；
+ *    以列表对象身份与配置代数判断是否需要重算，变化时按下标对全部交易的出售物品求值一次
+ * 2）结果按交易下标存入数组，滚动列表与每帧绘制只按下标取值，不再求值
+ * 3）交易一般只有几项，直接在渲染线程上经 MatchCache 求值，不交给后台流水线
+ */
+public class MerchantHighlighter {
+
+    private static final int[] EMPTY = new int[0];
+
+    private TradeOfferList offers;
+    private long generation = -1L;
+    private int[] results = EMPTY;
+
+    /**
+     * 每帧调用一次：交易列表换了或配置变化时重新求值，否则什么也不做
+     */
+    public void refresh(TradeOfferList list) {
+        long gen = ConfigManager.getInstance().getGeneration();
+        if (list == offers && gen == generation) return;
+        offers = list;
+        generation = gen;
+        int[] r = new int[list.size()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = MatchCache.getInstance().match(list.get(i).getSellItem());
+        }
+        results = r;
+    }
+
+    public boolean isHighlighted(int index) {
+        return index >= 0 && index < results.length && MatchCache.countOf(results[index]) > 0;
+    }
+
+    /**
+     * 该交易的高亮颜色：命中规则的颜色，规则没有指定时为 defaultColor
+     */
+    public int getColor(int index, int defaultColor) {
+        if (index < 0 || index >= results.length) return defaultColor;
+        int color = ConfigManager.getInstance().getSnapshot().getMatcher()
+                .getColor(MatchCache.ruleOf(results[index]));
+        return color != HighlightRule.NO_COLOR ? color : defaultColor;
+    }
+}
@@ -0,0 +1,33 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+
+/**
+ * 容器界面左上角的统计行（类似 F3）：
+ * 文本每 250ms 才重新生成一次（需要排序求百分位），其余帧直接复用上一次的字符串。
+ */
+public class StatsOverlay {
+
+    private static final long REFRESH_NANOS = 250_000_000L;
+
+    private static final StatsOverlay INSTANCE = new StatsOverlay();
+
+    public static StatsOverlay getInstance() {
+        return INSTANCE;
+    }
+
+    private String text = "";
+    private long lastUpdate = 0L;
+
+    private StatsOverlay() {}
+
+    public void draw(DrawContext context) {
+        long now = System.nanoTime();
+        if (text.isEmpty() || now - lastUpdate >= REFRESH_NANOS) {
+            text = HighlightStats.getInstance().summary();
+            lastUpdate = now;
+        }
+        context.drawTextWithShadow(MinecraftClient.getInstance().textRenderer, text, 2, 2, 0xFFFFFF);
+    }
+}
@@ -1,31 +1,66 @@
 package cn.coatcn.bookhighlight.mixin;
 
+import cn.coatcn.bookhighlight.BookCollector;
 import cn.coatcn.bookhighlight.ConfigManager;
-import cn.coatcn.bookhighlight.EnchantMatch;
+import cn.coatcn.bookhighlight.ContainerHighlighter;
+import cn.coatcn.bookhighlight.ContainerStrategies;
+import cn.coatcn.bookhighlight.ContainerStrategy;
+import cn.coatcn.bookhighlight.HighlightRenderer;
+import cn.coatcn.bookhighlight.HighlightStats;
+import cn.coatcn.bookhighlight.StatsOverlay;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.ingame.HandledScreen;
-import net.minecraft.inventory.Inventory;
-import net.minecraft.item.ItemStack;
-import net.minecraft.screen.GenericContainerScreenHandler;
-import net.minecraft.screen.PlayerScreenHandler;
+import net.minecraft.item.Items;
 import net.minecraft.screen.ScreenHandler;
-import net.minecraft.screen.ShulkerBoxScreenHandler;
 import net.minecraft.screen.slot.Slot;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 @Mixin(HandledScreen.class)
 public abstract class HandledScreenMixin {
     @Shadow protected int x;
     @Shadow protected int y;
     @Shadow protected ScreenHandler handler;
+    @Shadow protected Slot focusedSlot;
 
-    private static boolean book_highlight$isSupportedContainer(ScreenHandler handler) {
-        if (handler == null) return false;
-        return handler instanceof GenericContainerScreenHandler || handler instanceof ShulkerBoxScreenHandler;
+    // 本界面的高亮状态，首次渲染时创建（此时确定容器格子范围）
+    @Unique
+    private ContainerHighlighter book_highlight$highlighter;
+    // 批量模式下本帧收集到的高亮格子
+    @Unique
+    private final HighlightRenderer book_highlight$renderer = new HighlightRenderer();
+
+    // 本界面是否已查过策略（不支持的界面也只查一次）
+    @Unique
+    private boolean book_highlight$resolved;
+
+    // 每帧开始时检查一次 revision / 配置代数，有变化才重新扫描；未求值的格子按每帧预算推进，悬停格优先
+    @Inject(
+        method = "method_25394(Lnet/minecraft/class_332;IIF)V",
+        at = @At("HEAD"),
+        remap = false
+    )
+    private void book_highlight$beforeRender(DrawContext context, int mouseX, int mouseY, float delta, CallbackInfo ci) {
+        if (!book_highlight$resolved) {
+            book_highlight$resolved = true;
+            // 按 ScreenHandler 类查策略（ClassValue 缓存），未注册或被配置关闭的界面不高亮
+            ContainerStrategy strategy = ContainerStrategies.getInstance().find(handler);
+            if (strategy != null) {
+                book_highlight$highlighter = new ContainerHighlighter(handler, strategy);
+            }
+        }
+        if (book_highlight$highlighter == null) return;
+        HighlightStats stats = HighlightStats.getInstance();
+        stats.beginFrame();
+        long t0 = System.nanoTime();
+        book_highlight$highlighter.refresh(focusedSlot);
+        stats.addFrameNanos(System.nanoTime() - t0);
     }
 
     // 关键：method 指向 intermediary 名 + 描述符；remap=false
@@ -35,21 +70,74 @@ public abstract class HandledScreenMixin {
         remap = false
     )
     private void book_highlight$afterDrawSlot(DrawContext context, Slot slot, CallbackInfo ci) {
-        if (!book_highlight$isSupportedContainer(handler)) return;
+        ContainerHighlighter highlighter = book_highlight$highlighter;
+        if (highlighter == null) return;
+        boolean matched = highlighter.isHighlighted(slot);
+        // 逐格路径只计数不计时，避免测量本身成为开销
+        HighlightStats.getInstance().countSlot(matched);
+        if (!matched) return;
 
-        Inventory inv = slot.inventory;
-        if (inv == null || handler instanceof PlayerScreenHandler) return;
+        ConfigManager cfg = ConfigManager.getInstance();
+        // context 在 drawSlot 之前已平移到容器原点，这里无需再次加 x/y
+        int left = slot.x + 1;
+        int top  = slot.y + 1;
+        // 潜影盒 / 收纳袋：左上角显示内部命中的附魔书数量
+        int badge = cfg.isCountBadge() && !slot.getStack().isOf(Items.ENCHANTED_BOOK) ? highlighter.getCount(slot) : 0;
+        // 命中规则自带颜色时用规则颜色，否则用全局颜色
+        int color = highlighter.getColor(slot, cfg.getHighlightColor());
+        if (cfg.isBatchedRendering()) {
+            book_highlight$renderer.add(left, top, color);
+            if (badge > 0) book_highlight$renderer.addBadge(left, top, badge);
+        } else {
+            long t0 = System.nanoTime();
+            HighlightRenderer.draw(context, left, top, color, cfg.getHighlightStyle());
+            if (badge > 0) {
+                HighlightRenderer.drawBadge(context, MinecraftClient.getInstance().textRenderer, left, top, badge);
+            }
+            HighlightStats.getInstance().addFrameNanos(System.nanoTime() - t0);
+        }
+    }
+
+    // 格子循环结束、绘制前景之前（仍处于容器原点坐标系）一次性提交本帧的高亮
+    @Inject(
+        method = "method_25394(Lnet/minecraft/class_332;IIF)V",
+        at = @At(value = "INVOKE", target = "Lnet/minecraft/class_465;method_2388(Lnet/minecraft/class_332;II)V"),
+        remap = false
+    )
+    private void book_highlight$afterDrawSlots(DrawContext context, int mouseX, int mouseY, float delta, CallbackInfo ci) {
+        if (book_highlight$renderer.size() == 0) return;
+        ConfigManager cfg = ConfigManager.getInstance();
+        long t0 = System.nanoTime();
+        book_highlight$renderer.flush(context, cfg.getHighlightStyle());
+        HighlightStats.getInstance().addFrameNanos(System.nanoTime() - t0);
+    }
 
-        ItemStack stack = slot.getStack();
-        if (stack == null || stack.isEmpty()) return;
+    // 收取按键：界面打开时按键不经过 KeyBinding 的 wasPressed，只能在这里判断
+    @Inject(
+        method = "method_25404(III)Z",
+        at = @At("HEAD"),
+        cancellable = true,
+        remap = false
+    )
+    private void book_highlight$onKeyPressed(int keyCode, int scanCode, int modifiers, CallbackInfoReturnable<Boolean> cir) {
+        ContainerHighlighter highlighter = book_highlight$highlighter;
+        if (highlighter != null && BookCollector.getInstance().onKeyPressed(keyCode, scanCode, highlighter)) {
+            cir.setReturnValue(true);
+        }
+    }
 
-        var targets = ConfigManager.getInstance().getVisibleNamesCn();
-        if (EnchantMatch.isTargetEnchantedBook(stack, targets)) {
-            int color = ConfigManager.getInstance().getHighlightColor(); // ARGB
-            // context 在 drawSlot 之前已平移到容器原点，这里无需再次加 x/y
-            int left = slot.x + 1;
-            int top  = slot.y + 1;
-            context.fill(left, top, left + 16, top + 16, color);
+    // 整帧结束：记录本帧耗时；开启统计行时画在屏幕左上角（此时已回到屏幕坐标系）
+    @Inject(
+        method = "method_25394(Lnet/minecraft/class_332;IIF)V",
+        at = @At("TAIL"),
+        remap = false
+    )
+    private void book_highlight$afterRender(DrawContext context, int mouseX, int mouseY, float delta, CallbackInfo ci) {
+        if (book_highlight$highlighter == null) return;
+        HighlightStats stats = HighlightStats.getInstance();
+        stats.endFrame();
+        if (stats.isOverlay()) {
+            StatsOverlay.getInstance().draw(context);
         }
     }
 }
@@ -0,0 +1,82 @@
+package cn.coatcn.bookhighlight.mixin;
+
+import cn.coatcn.bookhighlight.ConfigManager;
+import cn.coatcn.bookhighlight.ContainerStrategies;
+import cn.coatcn.bookhighlight.HighlightRenderer;
+import cn.coatcn.bookhighlight.MerchantHighlighter;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.ingame.HandledScreen;
+import net.minecraft.client.gui.screen.ingame.MerchantScreen;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.screen.MerchantScreenHandler;
+import net.minecraft.text.Text;
+import net.minecraft.village.TradeOfferList;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(MerchantScreen.class)
+public abstract class MerchantScreenMixin extends HandledScreen<MerchantScreenHandler> {
+    // 与 MerchantScreen#render 中交易列表的布局一致：每页 7 项，行高 20，出售物品在第 73 像素处
+    @Unique
+    private static final int book_highlight$VISIBLE_OFFERS = 7;
+    @Unique
+    private static final int book_highlight$ROW_HEIGHT = 20;
+    @Unique
+    private static final int book_highlight$SELL_X = 73;
+    @Unique
+    private static final int book_highlight$FIRST_ROW_Y = 19;
+
+    @Shadow private int indexStartOffset;
+
+    @Unique
+    private final MerchantHighlighter book_highlight$offers = new MerchantHighlighter();
+    @Unique
+    private final HighlightRenderer book_highlight$renderer = new HighlightRenderer();
+    // 本界面是否已查过策略（与格子高亮共用 "merchant" 开关）
+    @Unique
+    private boolean book_highlight$resolved;
+    @Unique
+    private boolean book_highlight$enabled;
+
+    private MerchantScreenMixin(MerchantScreenHandler handler, PlayerInventory inventory, Text title) {
+        super(handler, inventory, title);
+    }
+
+    // 交易列表画完之后叠加高亮；结果按交易下标缓存，只在交易列表数据包到达（换了列表对象）或配置变化时重算
+    @Inject(
+        method = "method_25394(Lnet/minecraft/class_332;IIF)V",
+        at = @At("TAIL"),
+        remap = false
+    )
+    private void book_highlight$afterRender(DrawContext context, int mouseX, int mouseY, float delta, CallbackInfo ci) {
+        if (!book_highlight$resolved) {
+            book_highlight$resolved = true;
+            book_highlight$enabled = ContainerStrategies.getInstance().find(handler) != null;
+        }
+        if (!book_highlight$enabled) return;
+        TradeOfferList list = handler.getRecipes();
+        if (list.isEmpty()) return;
+        book_highlight$offers.refresh(list);
+
+        ConfigManager cfg = ConfigManager.getInstance();
+        // 交易不超过一页时不滚动，从第 0 项开始画
+        int start = list.size() > book_highlight$VISIBLE_OFFERS ? indexStartOffset : 0;
+        int end = Math.min(list.size(), start + book_highlight$VISIBLE_OFFERS);
+        for (int i = start; i < end; i++) {
+            if (!book_highlight$offers.isHighlighted(i)) continue;
+            int left = x + book_highlight$SELL_X;
+            int top = y + book_highlight$FIRST_ROW_Y + (i - start) * book_highlight$ROW_HEIGHT;
+            int color = book_highlight$offers.getColor(i, cfg.getHighlightColor());
+            if (cfg.isBatchedRendering()) {
+                book_highlight$renderer.add(left, top, color);
+            } else {
+                HighlightRenderer.draw(context, left, top, color, cfg.getHighlightStyle());
+            }
+        }
+        book_highlight$renderer.flush(context, cfg.getHighlightStyle());
+    }
+}
@@ -0,0 +1,159 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.EnchantNameIndex;
+import cn.coatcn.bookhighlight.core.NameNormalizer;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.enchantment.EnchantmentLevelEntry;
+import net.minecraft.enchantment.Enchantments;
+import net.minecraft.item.EnchantedBookItem;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试数据：
+ * 1）不启动游戏，只初始化注册表（Bootstrap）
+ * 2）按固定随机种子生成“大箱子”里的物品：原版附魔书、仅 Lore 的服务端自定义附魔书、非附魔书
+ * 3）目标列表从真实附魔名开始，不够时补充自定义名称，便于比较 1 / 10 / 200 个目标
+ */
+final class BenchData {
+
+    static final int DOUBLE_CHEST = 54;
+
+    // 部分原版附魔的中文名，代替运行时从 zh_cn 语言文件反查
+    private static final Object[][] VANILLA_CN = {
+            {Enchantments.SHARPNESS, "锋利"},
+            {Enchantments.EFFICIENCY, "效率"},
+            {Enchantments.UNBREAKING, "耐久"},
+            {Enchantments.MENDING, "经验修补"},
+            {Enchantments.FORTUNE, "时运"},
+            {Enchantments.PROTECTION, "保护"},
+            {Enchantments.FEATHER_FALLING, "摔落保护"},
+            {Enchantments.LOOTING, "抢夺"},
+            {Enchantments.POWER, "力量"},
+            {Enchantments.SILK_TOUCH, "精准采集"},
+    };
+
+    // 服务端插件常见的 Lore 写法
+    private static final String[] CUSTOM_CN = {"利刃", "奥术防御", "鲜血魔咒", "突刺", "夜伏", "再生", "肾上腺素", "不意", "轻巧", "活力"};
+
+    private static boolean bootstrapped = false;
+
+    private BenchData() {}
+
+    static synchronized void bootstrap() {
+        if (bootstrapped) return;
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        bootstrapped = true;
+    }
+
+    static EnchantNameIndex nameIndex() {
+        Map<String, int[]> names = new HashMap<>();
+        for (Object[] pair : VANILLA_CN) {
+            names.put(NameNormalizer.normalize((String) pair[1]),
+                    new int[]{Registries.ENCHANTMENT.getRawId((Enchantment) pair[0])});
+        }
+        return nameIndex(names);
+    }
+
+    // 附魔 id 字符串部分直接取自注册表，中文名部分由调用方给出（如录制文件里保存的索引）
+    static EnchantNameIndex nameIndex(Map<String, int[]> names) {
+        Map<String, Integer> keys = new HashMap<>();
+        for (Enchantment e : Registries.ENCHANTMENT) {
+            Identifier id = Registries.ENCHANTMENT.getId(e);
+            int rawId = Registries.ENCHANTMENT.getRawId(e);
+            keys.put(id.toString(), rawId);
+            keys.put(id.getPath(), rawId);
+        }
+        return new EnchantNameIndex(names, keys);
+    }
+
+    static TargetSnapshot snapshot(int targetCount) {
+        Map<String, Boolean> targets = new LinkedHashMap<>();
+        for (int i = 0; targets.size() < targetCount; i++) {
+            if (i < VANILLA_CN.length) {
+                targets.put((String) VANILLA_CN[i][1], true);
+            } else if (i < VANILLA_CN.length + CUSTOM_CN.length) {
+                targets.put(CUSTOM_CN[i - VANILLA_CN.length], true);
+            } else {
+                targets.put("自定义附魔" + i, true);
+            }
+        }
+        return TargetSnapshot.ofTargets(1L, targets, nameIndex(), false);
+    }
+
+    static List<ItemStack> chest(String mix, long seed) {
+        Random random = new Random(seed);
+        List<ItemStack> stacks = new ArrayList<>(DOUBLE_CHEST);
+        for (int i = 0; i < DOUBLE_CHEST; i++) {
+            String kind = mix;
+            if (mix.equals("mixed")) {
+                int r = random.nextInt(3);
+                kind = r == 0 ? "vanilla" : r == 1 ? "lore" : "nonbook";
+            }
+            stacks.add(switch (kind) {
+                case "vanilla" -> vanillaBook(random);
+                case "lore" -> loreBook(random);
+                default -> new ItemStack(random.nextBoolean() ? Items.DIAMOND_SWORD : Items.COBBLESTONE, 1 + random.nextInt(64));
+            });
+        }
+        return stacks;
+    }
+
+    // 原版附魔书：随机 1~3 个存储附魔
+    static ItemStack vanillaBook(Random random) {
+        ItemStack book = new ItemStack(Items.ENCHANTED_BOOK);
+        List<Enchantment> all = Registries.ENCHANTMENT.stream().toList();
+        int n = 1 + random.nextInt(3);
+        for (int k = 0; k < n; k++) {
+            Enchantment e = all.get(random.nextInt(all.size()));
+            EnchantedBookItem.addEnchantment(book, new EnchantmentLevelEntry(e, 1 + random.nextInt(e.getMaxLevel())));
+        }
+        return book;
+    }
+
+    // 装满附魔书的潜影盒（27 格，原版书与 Lore 书各半），NBT 结构与服务端下发的一致
+    static ItemStack shulkerOfBooks(Random random) {
+        ItemStack shulker = new ItemStack(Items.SHULKER_BOX);
+        NbtList items = new NbtList();
+        for (int slot = 0; slot < 27; slot++) {
+            ItemStack book = random.nextBoolean() ? vanillaBook(random) : loreBook(random);
+            NbtCompound item = book.writeNbt(new NbtCompound());
+            item.putByte("Slot", (byte) slot);
+            items.add(item);
+        }
+        NbtCompound blockEntity = new NbtCompound();
+        blockEntity.put("Items", items);
+        shulker.getOrCreateNbt().put("BlockEntityTag", blockEntity);
+        return shulker;
+    }
+
+    // 服务端自定义附魔书：没有存储附魔，5~10 行 Lore
+    static ItemStack loreBook(Random random) {
+        ItemStack book = new ItemStack(Items.ENCHANTED_BOOK);
+        NbtList lore = new NbtList();
+        int lines = 5 + random.nextInt(6);
+        for (int k = 0; k < lines; k++) {
+            String text = k == 0
+                    ? "§7" + CUSTOM_CN[random.nextInt(CUSTOM_CN.length)] + " " + "IV".substring(random.nextInt(2)) + " (稀有)"
+                    : "§8说明文字第 " + k + " 行";
+            lore.add(NbtString.of("{\"text\":\"" + text + "\"}"));
+        }
+        book.getOrCreateSubNbt("display").put("Lore", lore);
+        return book;
+    }
+}
@@ -0,0 +1,100 @@
+package cn.coatcn.bookhighlight;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 附魔书索引的搜索耗时：先写入 containers 个容器（每个 1~4 种书，40 种附魔），再按一种附魔取最近 100 条。
+ * spread 为 true 时容器随机散布在 20000×20000 的范围内（几千个页，最坏情况），否则集中在几个区域（常见的仓库）。
+ * cold 每次新建 BookIndex（读取概要 + 按需读页），warm 复用同一个实例（页在 LRU 里）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookIndexBenchmark {
+
+    private static final int ENCHANTS = 40;
+    private static final int LIMIT = 100;
+
+    @Param({"10000", "30000"})
+    public int containers;
+
+    @Param({"false", "true"})
+    public boolean spread;
+
+    private Path dir;
+    private BookIndex warm;
+    private final List<String> query = List.of("minecraft:e7");
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("book_highlight_index");
+        BookIndex index = new BookIndex(dir);
+        Random random = new Random(42L);
+        int range = spread ? 10_000 : 600;
+        for (int c = 0; c < containers; c++) {
+            int x = random.nextInt(range * 2) - range;
+            int z = random.nextInt(range * 2) - range;
+            int y = random.nextInt(300) - 64;
+            int n = 1 + random.nextInt(4);
+            String[] ids = new String[n];
+            int[] levels = new int[n];
+            int[] counts = new int[n];
+            for (int k = 0; k < n; k++) {
+                ids[k] = "minecraft:e" + random.nextInt(ENCHANTS);
+                levels[k] = 1 + random.nextInt(5);
+                counts[k] = 1 + random.nextInt(3);
+            }
+            index.put(c % 3 == 0 ? "minecraft:the_nether" : "minecraft:overworld", pack(x, y, z), c, ids, levels, counts);
+        }
+        index.flush();
+        warm = new BookIndex(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public int cold() {
+        return new BookIndex(dir).search(query, LIMIT).size();
+    }
+
+    @Benchmark
+    public int warm() {
+        return warm.search(query, LIMIT).size();
+    }
+
+    // 与 BlockPos#asLong 相同的打包方式
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (y & 0xFFF)) | ((long) (z & 0x3FFFFFF) << 12);
+    }
+}
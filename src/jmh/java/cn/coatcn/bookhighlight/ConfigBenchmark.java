@@ -0,0 +1,84 @@
+package cn.coatcn.bookhighlight;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 配置文件解析与保存（临时目录中真实落盘，包含原子替换与备份）。
+ * save 直接在基准线程上同步调用 ConfigWriter.write，不经过合并延迟与写入线程，也不通知 ConfigManager。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigBenchmark {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    @Param({"1", "10", "200"})
+    public int targets;
+
+    private String json;
+    private ConfigData data;
+    private Path dir;
+    private ConfigWriter writer;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchData.bootstrap();
+        data = new ConfigData(ConfigData.DEFAULT_COLOR, 66, HighlightStyle.FILL, true, false, true, true, true,
+                ConfigData.DEFAULT_FRAME_BUDGET_MICROS, ConfigData.AUTO_MATCH_THREADS,
+                ConfigData.DEFAULT_COLLECT_CLICKS_PER_SECOND,
+                new LinkedHashMap<>(), List.of(), BenchData.snapshot(targets).getTargets(), new LinkedHashMap<>());
+        json = GSON.toJson(data.toJson());
+        dir = Files.createTempDirectory("book_highlight_bench");
+        writer = new ConfigWriter(dir.resolve("targets_cn.json"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ConfigData parse() throws IOException {
+        return ConfigData.parse(new StringReader(json));
+    }
+
+    @Benchmark
+    public String serialize() {
+        return GSON.toJson(data.toJson());
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        return writer.write(data);
+    }
+}
@@ -0,0 +1,230 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.EnchantNameIndex;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 录制文件的离线回放（不启动游戏，只初始化注册表）：
+ * 1）读取 ContainerRecorder 录下的 .dat 文件，按录制时的目标、规则、等级条件、nestedScan 与名称索引
+ *    （或 --config 指定的配置，名称索引仍用录制时的）生成目标快照，编译出与录制时相同的匹配器
+ * 2）对每个容器重复执行与 ContainerHighlighter 相同的扫描：冷（新物品栈、空缓存）、热（同一批物品栈再扫一遍）
+ * 3）输出每个容器的匹配数、耗时中位数与每次扫描的分配字节数；--csv 另存一份，便于比较不同版本
+ *
+ * 用法：./gradlew replay -Preplay.dir=&lt;目录或文件&gt; [-Preplay.config=targets_cn.json] [-Preplay.rounds=50] [-Preplay.csv=out.csv]
+ */
+public final class ContainerReplay {
+
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private ContainerReplay() {}
+
+    public static void main(String[] args) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        Path config = null;
+        Path csv = null;
+        int rounds = 50;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--config" -> config = Path.of(args[++i]);
+                case "--csv" -> csv = Path.of(args[++i]);
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        List<Path> files = listRecordings(inputs);
+        if (files.isEmpty()) {
+            System.err.println("没有找到录制文件（*" + ContainerRecording.FILE_SUFFIX + "）：" + inputs);
+            System.exit(1);
+        }
+
+        BenchData.bootstrap();
+        ConfigData override = config != null ? ConfigData.read(config) : null;
+        int dataVersion = SharedConstants.getGameVersion().getSaveVersion().getId();
+
+        List<Replayed> replays = new ArrayList<>(files.size());
+        for (Path file : files) {
+            ContainerRecording rec = ContainerRecording.read(file);
+            if (rec.getDataVersion() != dataVersion) {
+                System.err.println("提示：" + file.getFileName() + " 的数据版本为 " + rec.getDataVersion()
+                        + "，当前为 " + dataVersion + "，原版附魔 id 可能对不上");
+            }
+            EnchantNameIndex index = BenchData.nameIndex(rec.getNames());
+            TargetSnapshot snapshot;
+            if (override != null) {
+                snapshot = new TargetSnapshot(1L, override.rules, override.targets, override.levels, index,
+                        override.nestedScan);
+            } else {
+                Map<String, Boolean> targets = new LinkedHashMap<>();
+                for (String name : rec.getTargets()) {
+                    targets.put(name, true);
+                }
+                snapshot = new TargetSnapshot(1L, rec.getRules(), targets, rec.getLevels(), index, rec.isNestedScan());
+            }
+            replays.add(new Replayed(file, rec, snapshot));
+        }
+
+        // 先整体热身，避免第一个容器承担 JIT 编译的开销
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (Replayed replay : replays) {
+                replay.run(false);
+            }
+        }
+        for (int r = 0; r < rounds; r++) {
+            for (Replayed replay : replays) {
+                replay.run(true);
+            }
+        }
+
+        boolean mismatch = false;
+        System.out.printf("%-40s %-28s %5s %5s %5s %10s %10s %10s %10s%n",
+                "file", "screen", "slots", "books", "hits", "cold(us)", "warm(us)", "coldB", "warmB");
+        for (Replayed replay : replays) {
+            System.out.printf("%-40s %-28s %5d %5d %5d %10.2f %10.2f %10d %10d%n",
+                    replay.file.getFileName(), replay.rec.getScreen(), replay.rec.getSize(), replay.books,
+                    replay.matches, replay.cold.median() / 1000.0, replay.warm.median() / 1000.0,
+                    replay.coldBytes / rounds, replay.warmBytes / rounds);
+            mismatch |= replay.mismatch;
+        }
+        if (csv != null) {
+            writeCsv(csv, replays, rounds);
+        }
+        if (mismatch) {
+            System.err.println("缓存扫描与直接匹配的结果不一致");
+            System.exit(1);
+        }
+    }
+
+    private static List<Path> listRecordings(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> list = Files.list(input)) {
+                    list.filter(p -> p.getFileName().toString().endsWith(ContainerRecording.FILE_SUFFIX))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else if (Files.isRegularFile(input)) {
+                files.add(input);
+            }
+        }
+        return files;
+    }
+
+    private static void writeCsv(Path csv, List<Replayed> replays, int rounds) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            out.println("file,screen,slots,books,matches,cold_ns,warm_ns,cold_bytes,warm_bytes");
+            for (Replayed r : replays) {
+                out.printf("%s,%s,%d,%d,%d,%d,%d,%d,%d%n", r.file.getFileName(), r.rec.getScreen(), r.rec.getSize(),
+                        r.books, r.matches, r.cold.median(), r.warm.median(), r.coldBytes / rounds, r.warmBytes / rounds);
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // 一个录制文件的回放状态与统计
+    private static final class Replayed {
+        final Path file;
+        final ContainerRecording rec;
+        final TargetSnapshot snapshot;
+        final Samples cold = new Samples();
+        final Samples warm = new Samples();
+        final BitSet highlighted = new BitSet();
+        int books;
+        int matches;
+        long coldBytes;
+        long warmBytes;
+        boolean mismatch;
+
+        Replayed(Path file, ContainerRecording rec, TargetSnapshot snapshot) {
+            this.file = file;
+            this.rec = rec;
+            this.snapshot = snapshot;
+        }
+
+        void run(boolean measure) {
+            // 相当于服务端重新下发一次容器内容：全新的物品栈、缓存里没有任何结果
+            List<ItemStack> stacks = rec.toStacks();
+            MatchCache cache = MatchCache.getInstance();
+            cache.clear();
+
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            scan(cache, stacks);
+            long coldNs = System.nanoTime() - start;
+            long coldAlloc = allocatedBytes() - bytes;
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            scan(cache, stacks);
+            long warmNs = System.nanoTime() - start;
+            long warmAlloc = allocatedBytes() - bytes;
+
+            if (!measure) return;
+            cold.add(coldNs);
+            warm.add(warmNs);
+            coldBytes += coldAlloc;
+            warmBytes += warmAlloc;
+            matches = highlighted.cardinality();
+            books = 0;
+            for (int i = 0; i < stacks.size(); i++) {
+                ItemStack stack = stacks.get(i);
+                if (stack.isOf(Items.ENCHANTED_BOOK)) books++;
+                if (EnchantMatch.isTargetEnchantedBook(stack, snapshot) != highlighted.get(i)) {
+                    mismatch = true;
+                }
+            }
+        }
+
+        // 与 ContainerHighlighter.scan 相同：逐格查缓存，结果写入位图
+        private void scan(MatchCache cache, List<ItemStack> stacks) {
+            highlighted.clear();
+            for (int i = 0; i < stacks.size(); i++) {
+                if (cache.isTarget(stacks.get(i), snapshot)) {
+                    highlighted.set(i);
+                }
+            }
+        }
+    }
+
+    // 耗时样本（纳秒），只用来取中位数
+    private static final class Samples {
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long ns) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ns;
+        }
+
+        long median() {
+            if (size == 0) return 0L;
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted[size / 2];
+        }
+    }
+}
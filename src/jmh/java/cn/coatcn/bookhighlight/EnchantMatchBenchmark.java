@@ -0,0 +1,64 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.item.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次操作 = 评估一个大箱子（54 格），分别测未缓存的 EnchantMatch 与带 MatchCache 的路径。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnchantMatchBenchmark {
+
+    @Param({"vanilla", "lore", "nonbook", "mixed"})
+    public String mix;
+
+    @Param({"1", "10", "200"})
+    public int targets;
+
+    private TargetSnapshot snapshot;
+    private List<ItemStack> chest;
+
+    @Setup
+    public void setup() {
+        BenchData.bootstrap();
+        snapshot = BenchData.snapshot(targets);
+        chest = BenchData.chest(mix, 42L);
+    }
+
+    @Benchmark
+    public int isTargetEnchantedBook() {
+        int matches = 0;
+        for (ItemStack stack : chest) {
+            if (EnchantMatch.isTargetEnchantedBook(stack, snapshot)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int cachedIsTarget() {
+        MatchCache cache = MatchCache.getInstance();
+        int matches = 0;
+        for (ItemStack stack : chest) {
+            if (cache.isTarget(stack, snapshot)) matches++;
+        }
+        return matches;
+    }
+}
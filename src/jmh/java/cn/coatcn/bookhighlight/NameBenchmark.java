@@ -0,0 +1,70 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.NameNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 名称相关热点：等级去除 / 规范化（原 stripLevel）、可见名称集合读取（原 getVisibleNamesCn）、快照重建。
+ * normalizeAndResolve 走不分配的路径（normalizeInto + EnchantNameIndex.resolve），gc profiler 下分配率应为 0。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NameBenchmark {
+
+    private static final String[] SAMPLES = {
+            "锋利 V", "§7锋利 Ｖ", "效率　十", "经验修补", "Fire Protection IV", "§7鲜血魔咒 III (稀有)"
+    };
+
+    @Param({"1", "10", "200"})
+    public int targets;
+
+    private TargetSnapshot snapshot;
+
+    @Setup
+    public void setup() {
+        BenchData.bootstrap();
+        snapshot = BenchData.snapshot(targets);
+    }
+
+    @Benchmark
+    public void normalize(Blackhole bh) {
+        for (String s : SAMPLES) {
+            bh.consume(NameNormalizer.normalize(s));
+        }
+    }
+
+    @Benchmark
+    public void normalizeAndResolve(Blackhole bh) {
+        for (String s : SAMPLES) {
+            bh.consume(snapshot.getIndex().resolve(NameNormalizer.normalizeInto(s)));
+        }
+    }
+
+    @Benchmark
+    public Set<String> visibleNames() {
+        return snapshot.getVisibleNames();
+    }
+
+    @Benchmark
+    public TargetSnapshot rebuildSnapshot() {
+        return TargetSnapshot.ofTargets(snapshot.getGeneration() + 1, snapshot.getTargets(), snapshot.getIndex(), false);
+    }
+}
@@ -0,0 +1,72 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.item.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次操作 = 评估一个装满潜影盒的大箱子（54 个潜影盒 × 27 本附魔书）：
+ * walk 每次都完整遍历 NBT；memoized 走 NestedMatch 的内容缓存（相当于同样内容的潜影盒被重新下发）。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NestedMatchBenchmark {
+
+    @Param({"1", "10", "200"})
+    public int targets;
+
+    private TargetSnapshot snapshot;
+    private List<ItemStack> chest;
+
+    @Setup
+    public void setup() {
+        BenchData.bootstrap();
+        TargetSnapshot base = BenchData.snapshot(targets);
+        snapshot = TargetSnapshot.ofTargets(1L, new LinkedHashMap<>(base.getTargets()), base.getIndex(), true);
+        Random random = new Random(42L);
+        chest = new ArrayList<>(BenchData.DOUBLE_CHEST);
+        for (int i = 0; i < BenchData.DOUBLE_CHEST; i++) {
+            chest.add(BenchData.shulkerOfBooks(random));
+        }
+    }
+
+    @Benchmark
+    public int walk() {
+        NestedMatch nested = NestedMatch.getInstance();
+        int n = 0;
+        for (ItemStack stack : chest) {
+            nested.clear();
+            n += nested.count(stack, snapshot);
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int memoized() {
+        NestedMatch nested = NestedMatch.getInstance();
+        int n = 0;
+        for (ItemStack stack : chest) {
+            n += nested.count(stack, snapshot);
+        }
+        return n;
+    }
+}
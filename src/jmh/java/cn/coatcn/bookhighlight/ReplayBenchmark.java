@@ -0,0 +1,82 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.item.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 用真实录制数据做基准：一次操作 = 依次评估目录里的全部录制容器。
+ * 目录由系统属性 bookhighlight.recordings 指定（./gradlew jmh -Preplay.dir=...），目录不存在时直接报错。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    private final List<TargetSnapshot> snapshots = new ArrayList<>();
+    private final List<List<ItemStack>> containers = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        BenchData.bootstrap();
+        Path dir = Path.of(System.getProperty("bookhighlight.recordings", "run/config/book_highlight/recordings"));
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalStateException("录制目录不存在：" + dir.toAbsolutePath());
+        }
+        try (Stream<Path> list = Files.list(dir)) {
+            for (Path file : list.filter(p -> p.toString().endsWith(ContainerRecording.FILE_SUFFIX)).sorted().toList()) {
+                ContainerRecording rec = ContainerRecording.read(file);
+                Map<String, Boolean> targets = new LinkedHashMap<>();
+                rec.getTargets().forEach(name -> targets.put(name, true));
+                snapshots.add(TargetSnapshot.ofTargets(1L, targets, BenchData.nameIndex(rec.getNames()), false));
+                containers.add(rec.toStacks());
+            }
+        }
+    }
+
+    @Benchmark
+    public int uncached() {
+        int n = 0;
+        for (int c = 0; c < containers.size(); c++) {
+            TargetSnapshot snapshot = snapshots.get(c);
+            for (ItemStack stack : containers.get(c)) {
+                if (EnchantMatch.isTargetEnchantedBook(stack, snapshot)) n++;
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int cachedWarm() {
+        MatchCache cache = MatchCache.getInstance();
+        int n = 0;
+        for (int c = 0; c < containers.size(); c++) {
+            TargetSnapshot snapshot = snapshots.get(c);
+            for (ItemStack stack : containers.get(c)) {
+                if (cache.isTarget(stack, snapshot)) n++;
+            }
+        }
+        return n;
+    }
+}
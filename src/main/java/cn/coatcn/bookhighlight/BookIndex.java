@@ -0,0 +1,493 @@
+package cn.coatcn.bookhighlight;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * 一个世界（服务器地址或单人存档）的附魔书索引，存放在 config/book_highlight/index/&lt;世界&gt;/ 下：
+ * 1）terms.txt：词条表，每行一个附魔 id 字符串，行号即词条 id；只追加，不改写
+ * 2）&lt;维度&gt;/r.&lt;x&gt;.&lt;z&gt;.bin：按区域分页的容器记录（见 BookIndexPage），只重写有变化的页
+ * 3）summary.bin：每页出现过的词条 id 及各词条最后看到的时间，常驻内存；搜索先用它挑出可能命中的页，
+ *    按该词条的时间从近到远读页，已凑满 limit 条且剩下的页都更旧时提前结束，最多读 limit 页左右
+ * 4）页内容放在按访问顺序淘汰的 LRU 里（最多 MAX_PAGES 页），被淘汰的脏页先写回磁盘
+ * 5）第一次使用时才读取词条表与概要；概要读不出来时只丢弃概要（词条表仍然有效），
+ *    词条表读不出来时整个目录挪到一旁（页里的词条 id 已无法解释），从空索引重新开始
+ * 6）页文件只要存在就读取，不依赖概要：脏页被淘汰写回后、概要落盘前退出，概要里会缺这一页，
+ *    读到时补回概要，不会用空页把磁盘上的其他容器覆盖掉
+ *
+ * 注：不做同步，只在索引线程上调用（见 BookIndexRecorder）。
+ */
+public class BookIndex {
+
+    static final int REGION_SHIFT = 9;
+    static final int MAX_PAGES = 64;
+
+    private static final int SUMMARY_MAGIC = 0x42484953; // "BHIS"
+    private static final int SUMMARY_VERSION = 1;
+    private static final String TERMS_FILE = "terms.txt";
+    private static final String SUMMARY_FILE = "summary.bin";
+
+    private final Path dir;
+    private final List<String> terms = new ArrayList<>();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final Map<PageKey, PageSummary> summary = new HashMap<>();
+    private final Map<PageKey, BookIndexPage> pages = new LinkedHashMap<>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PageKey, BookIndexPage> eldest) {
+            if (size() <= MAX_PAGES) return false;
+            writeIfDirty(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+    private final List<String> pendingTerms = new ArrayList<>();
+    private boolean opened;
+    private boolean summaryDirty;
+    private long pageLoads;
+
+    public BookIndex(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 记录一个容器当前的附魔书：ids / levels / counts 为平行数组（附魔 id 字符串、等级、本数）
+     */
+    public void put(String dimension, long pos, long time, String[] ids, int[] levels, int[] counts) {
+        open();
+        int[] books = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            books[i] = BookIndexPage.bookKey(termId(ids[i]), levels[i]);
+        }
+        // 同一种书在不同格子里已由调用方合并；这里只保证顺序稳定，便于比较是否变化
+        int[] order = sortedOrder(books);
+        int[] sortedBooks = new int[books.length];
+        int[] sortedCounts = new int[books.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedBooks[i] = books[order[i]];
+            sortedCounts[i] = counts[order[i]];
+        }
+
+        PageKey key = PageKey.of(dimension, pos);
+        BookIndexPage page = page(key, sortedBooks.length > 0);
+        if (page == null || !page.put(pos, time, sortedBooks, sortedCounts)) return;
+        if (page.isEmpty()) {
+            summary.remove(key);
+        } else {
+            summary.put(key, new PageSummary(page.getTerms(), page.getTermTimes()));
+        }
+        summaryDirty = true;
+    }
+
+    /**
+     * 查找含有任一指定附魔（id 字符串）的容器，按最后看到的时间从近到远，最多 limit 条
+     */
+    public List<Hit> search(Collection<String> enchantIds, int limit) {
+        open();
+        int[] wanted = enchantIds.stream()
+                .map(termIds::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray();
+        if (wanted.length == 0 || limit <= 0) return new ArrayList<>();
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (var e : summary.entrySet()) {
+            long latest = e.getValue().latest(wanted);
+            if (latest >= 0L) {
+                candidates.add(new Candidate(e.getKey(), latest));
+            }
+        }
+        candidates.sort(Comparator.comparingLong((Candidate c) -> c.latest).reversed());
+
+        // 时间最近的 limit 条：小顶堆，堆顶是目前入选的最旧一条
+        PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingLong(Hit::getTime));
+        for (Candidate candidate : candidates) {
+            if (top.size() >= limit && candidate.latest < top.peek().getTime()) break;
+            PageKey key = candidate.key;
+            BookIndexPage page = page(key, false);
+            if (page == null) continue;
+            for (var entry : page.getEntries().entrySet()) {
+                BookIndexPage.Entry value = entry.getValue();
+                for (int i = 0; i < value.books.length; i++) {
+                    int term = BookIndexPage.termOf(value.books[i]);
+                    if (Arrays.binarySearch(wanted, term) < 0) continue;
+                    if (top.size() >= limit && value.time < top.peek().getTime()) continue;
+                    top.add(new Hit(key.dimension, entry.getKey(), value.time, terms.get(term),
+                            BookIndexPage.levelOf(value.books[i]), value.counts[i]));
+                    if (top.size() > limit) top.poll();
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(Comparator.comparingLong(Hit::getTime).reversed());
+        return hits;
+    }
+
+    /**
+     * 写回全部脏页、新增的词条与概要
+     */
+    public void flush() throws IOException {
+        if (!opened) return;
+        for (var e : pages.entrySet()) {
+            writeIfDirty(e.getKey(), e.getValue());
+        }
+        writeTerms();
+        if (summaryDirty) {
+            writeSummary();
+            summaryDirty = false;
+        }
+    }
+
+    public int getContainerPages() {
+        open();
+        return summary.size();
+    }
+
+    public int getLoadedPages() {
+        return pages.size();
+    }
+
+    public long getPageLoads() {
+        return pageLoads;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    private void open() {
+        if (opened) return;
+        opened = true;
+        try {
+            Path termsFile = dir.resolve(TERMS_FILE);
+            if (Files.isRegularFile(termsFile)) {
+                for (String line : Files.readAllLines(termsFile, StandardCharsets.UTF_8)) {
+                    termIds.put(line, terms.size());
+                    terms.add(line);
+                }
+            }
+        } catch (IOException e) {
+            // 词条表坏了，页里的词条 id 都无法解释；索引只是缓存，挪开旧目录后从空索引开始
+            e.printStackTrace();
+            terms.clear();
+            termIds.clear();
+            moveAside();
+            return;
+        }
+        try {
+            Path summaryFile = dir.resolve(SUMMARY_FILE);
+            if (Files.isRegularFile(summaryFile)) {
+                readSummary(summaryFile);
+            }
+        } catch (IOException e) {
+            // 概要只是页内容的摘要：丢掉后由之后读到、写过的页重新补上
+            e.printStackTrace();
+            summary.clear();
+            summaryDirty = true;
+        }
+    }
+
+    // 整个目录改名为 <目录>.broken-<时间>，保留下来便于排查，而不是删除
+    private void moveAside() {
+        if (!Files.exists(dir)) return;
+        Path broken = dir.resolveSibling(dir.getFileName() + ".broken-" + System.currentTimeMillis());
+        try {
+            Files.move(dir, broken);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private int termId(String id) {
+        Integer existing = termIds.get(id);
+        if (existing != null) return existing;
+        int term = terms.size();
+        terms.add(id);
+        termIds.put(id, term);
+        pendingTerms.add(id);
+        return term;
+    }
+
+    // create 为 false 时，磁盘上也没有的页返回 null
+    private BookIndexPage page(PageKey key, boolean create) {
+        BookIndexPage page = pages.get(key);
+        if (page != null) return page;
+        Path file = pageFile(key);
+        if (Files.isRegularFile(file)) {
+            try {
+                page = BookIndexPage.read(file);
+                pageLoads++;
+                if (!summary.containsKey(key) && !page.isEmpty()) {
+                    // 页已落盘而概要还没来得及写（例如中途退出）：补回概要
+                    summary.put(key, new PageSummary(page.getTerms(), page.getTermTimes()));
+                    summaryDirty = true;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (page == null) {
+            if (!create) return null;
+            page = new BookIndexPage();
+        }
+        pages.put(key, page);
+        return page;
+    }
+
+    private void writeIfDirty(PageKey key, BookIndexPage page) {
+        if (!page.isDirty()) return;
+        try {
+            // 词条必须先于引用它们的页落盘
+            writeTerms();
+            Path file = pageFile(key);
+            if (page.isEmpty()) {
+                Files.deleteIfExists(file);
+            } else {
+                page.write(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeTerms() throws IOException {
+        if (pendingTerms.isEmpty()) return;
+        Files.createDirectories(dir);
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve(TERMS_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String term : pendingTerms) {
+                out.write(term);
+                out.newLine();
+            }
+        }
+        pendingTerms.clear();
+    }
+
+    private void readSummary(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SUMMARY_MAGIC || in.readInt() != SUMMARY_VERSION) {
+                throw new IOException("不是附魔书索引概要：" + file);
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                PageKey key = new PageKey(in.readUTF(), in.readInt(), in.readInt());
+                int[] pageTerms = new int[in.readInt()];
+                long[] times = new long[pageTerms.length];
+                for (int k = 0; k < pageTerms.length; k++) {
+                    pageTerms[k] = in.readInt();
+                    times[k] = in.readLong();
+                }
+                summary.put(key, new PageSummary(pageTerms, times));
+            }
+        }
+    }
+
+    private void writeSummary() throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve(SUMMARY_FILE);
+        Path tmp = dir.resolve(SUMMARY_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SUMMARY_MAGIC);
+            out.writeInt(SUMMARY_VERSION);
+            out.writeInt(summary.size());
+            for (var e : summary.entrySet()) {
+                out.writeUTF(e.getKey().dimension);
+                out.writeInt(e.getKey().regionX);
+                out.writeInt(e.getKey().regionZ);
+                PageSummary s = e.getValue();
+                out.writeInt(s.terms.length);
+                for (int k = 0; k < s.terms.length; k++) {
+                    out.writeInt(s.terms[k]);
+                    out.writeLong(s.times[k]);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path pageFile(PageKey key) {
+        return dir.resolve(fileName(key.dimension)).resolve("r." + key.regionX + "." + key.regionZ + ".bin");
+    }
+
+    /**
+     * 世界名、维度 id 等转换为可用作文件名的形式
+     */
+    public static String fileName(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(c < 0x20 || "\\/:*?\"<>|. ".indexOf(c) >= 0 ? '_' : c);
+        }
+        return sb.length() == 0 ? "_" : sb.toString();
+    }
+
+    private static int[] sortedOrder(int[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> values[i]));
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    // BlockPos#asLong 的打包格式：x 26 位、z 26 位、y 12 位
+    static int unpackX(long pos) {
+        return (int) (pos >> 38);
+    }
+
+    static int unpackY(long pos) {
+        return (int) (pos << 52 >> 52);
+    }
+
+    static int unpackZ(long pos) {
+        return (int) (pos << 26 >> 38);
+    }
+
+    private static final class PageKey {
+        final String dimension;
+        final int regionX;
+        final int regionZ;
+
+        PageKey(String dimension, int regionX, int regionZ) {
+            this.dimension = dimension;
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+        }
+
+        static PageKey of(String dimension, long pos) {
+            return new PageKey(dimension, unpackX(pos) >> REGION_SHIFT, unpackZ(pos) >> REGION_SHIFT);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PageKey other)) return false;
+            return regionX == other.regionX && regionZ == other.regionZ && dimension.equals(other.dimension);
+        }
+
+        @Override
+        public int hashCode() {
+            return (dimension.hashCode() * 31 + regionX) * 31 + regionZ;
+        }
+    }
+
+    // 常驻内存的页概要：升序的词条 id 与各自最后看到的时间
+    private static final class PageSummary {
+        final int[] terms;
+        final long[] times;
+
+        PageSummary(int[] terms, long[] times) {
+            this.terms = terms;
+            this.times = times;
+        }
+
+        // 升序的 wanted 中任一词条在本页最后看到的时间，都没有时为 -1
+        long latest(int[] wanted) {
+            long latest = -1L;
+            int i = 0;
+            int j = 0;
+            while (i < terms.length && j < wanted.length) {
+                if (terms[i] == wanted[j]) {
+                    latest = Math.max(latest, times[i]);
+                    i++;
+                    j++;
+                } else if (terms[i] < wanted[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return latest;
+        }
+    }
+
+    private static final class Candidate {
+        final PageKey key;
+        final long latest;
+
+        Candidate(PageKey key, long latest) {
+            this.key = key;
+            this.latest = latest;
+        }
+    }
+
+    /**
+     * 一条搜索结果：某个容器里的一种附魔书
+     */
+    public static final class Hit {
+        private final String dimension;
+        private final long pos;
+        private final long time;
+        private final String enchantId;
+        private final int level;
+        private final int count;
+
+        Hit(String dimension, long pos, long time, String enchantId, int level, int count) {
+            this.dimension = dimension;
+            this.pos = pos;
+            this.time = time;
+            this.enchantId = enchantId;
+            this.level = level;
+            this.count = count;
+        }
+
+        public String getDimension() {
+            return dimension;
+        }
+
+        public long getPos() {
+            return pos;
+        }
+
+        public int getX() {
+            return unpackX(pos);
+        }
+
+        public int getY() {
+            return unpackY(pos);
+        }
+
+        public int getZ() {
+            return unpackZ(pos);
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getEnchantId() {
+            return enchantId;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
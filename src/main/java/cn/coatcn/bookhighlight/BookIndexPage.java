@@ -0,0 +1,175 @@
+package cn.coatcn.bookhighlight;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 附魔书索引的一页：一个维度中一个 512×512 区域（与原版区域文件相同的划分）里的全部容器
+ * 1）容器以方块坐标（BlockPos#asLong 的打包形式）为键，记录最后一次看到的时间与其中的附魔书
+ * 2）每本书记为 (词条 id << 8 | 等级) 与数量，词条 id 指向 BookIndex 的词条表（附魔 id 字符串）
+ * 3）文件格式：MAGIC、VERSION、容器数，之后每个容器依次为 pos、time、书的种数、(key, count) 列表
+ *
+ * 注：只在索引线程上访问。
+ */
+final class BookIndexPage {
+
+    static final int MAGIC = 0x42484958; // "BHIX"
+    static final int VERSION = 1;
+
+    private static final int[] NO_TERMS = new int[0];
+    private static final long[] NO_TIMES = new long[0];
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private boolean dirty;
+    private int[] terms = NO_TERMS;
+    private long[] termTimes = NO_TIMES;
+
+    static int bookKey(int term, int level) {
+        return (term << 8) | Math.max(0, Math.min(level, 255));
+    }
+
+    static int termOf(int key) {
+        return key >>> 8;
+    }
+
+    static int levelOf(int key) {
+        return key & 0xFF;
+    }
+
+    /**
+     * 替换一个容器的记录；books 为空表示容器里已经没有附魔书，删除该记录。返回记录是否有变化（含时间）
+     */
+    boolean put(long pos, long time, int[] books, int[] counts) {
+        Entry old = entries.get(pos);
+        if (books.length == 0) {
+            if (old == null) return false;
+            entries.remove(pos);
+        } else if (old != null && Arrays.equals(old.books, books) && Arrays.equals(old.counts, counts)) {
+            // 内容没变只刷新时间
+            if (old.time == time) return false;
+            old.time = time;
+        } else {
+            entries.put(pos, new Entry(time, books, counts));
+        }
+        collectTerms();
+        dirty = true;
+        return true;
+    }
+
+    Map<Long, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 本页出现过的词条 id（升序、去重），用于写入概要
+     */
+    int[] getTerms() {
+        return terms;
+    }
+
+    /**
+     * 与 getTerms 平行：本页最后一次看到含该词条的容器的时间，搜索按它决定读页的先后
+     */
+    long[] getTermTimes() {
+        return termTimes;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    private void collectTerms() {
+        Map<Integer, Long> latest = new HashMap<>();
+        for (Entry e : entries.values()) {
+            for (int key : e.books) {
+                latest.merge(termOf(key), e.time, Math::max);
+            }
+        }
+        int[] t = new int[latest.size()];
+        int i = 0;
+        for (int term : latest.keySet()) {
+            t[i++] = term;
+        }
+        Arrays.sort(t);
+        long[] times = new long[t.length];
+        for (int k = 0; k < t.length; k++) {
+            times[k] = latest.get(t[k]);
+        }
+        this.terms = t;
+        this.termTimes = times;
+    }
+
+    static BookIndexPage read(Path file) throws IOException {
+        BookIndexPage page = new BookIndexPage();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("不是附魔书索引页：" + file);
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                long pos = in.readLong();
+                long time = in.readLong();
+                int n = in.readUnsignedShort();
+                int[] books = new int[n];
+                int[] counts = new int[n];
+                for (int k = 0; k < n; k++) {
+                    books[k] = in.readInt();
+                    counts[k] = in.readUnsignedShort();
+                }
+                page.entries.put(pos, new Entry(time, books, counts));
+            }
+        }
+        page.collectTerms();
+        return page;
+    }
+
+    /**
+     * 先写临时文件再原子替换，写到一半退出不会留下损坏的页
+     */
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (var e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeLong(e.getKey());
+                out.writeLong(entry.time);
+                out.writeShort(entry.books.length);
+                for (int k = 0; k < entry.books.length; k++) {
+                    out.writeInt(entry.books[k]);
+                    out.writeShort(Math.min(entry.counts[k], 0xFFFF));
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    static final class Entry {
+        long time;
+        final int[] books;
+        final int[] counts;
+
+        Entry(long time, int[] books, int[] counts) {
+            this.time = time;
+            this.books = books;
+            this.counts = counts;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.HighlightRule;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.lwjgl.glfw.GLFW;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 解析后的配置文件内容（不可变）：
+ * 可在任意线程解析，再交给 ConfigManager 在客户端线程上整体替换。
+ */
+final class ConfigData {
+
+    static final int DEFAULT_COLOR = 0x80FFD700; // 默认半透明金色
+    static final int DEFAULT_FRAME_BUDGET_MICROS = 500; // 每帧最多花在未缓存物品求值上的时间
+    static final int AUTO_MATCH_THREADS = -1; // 后台求值线程数按 CPU 核数决定
+    static final int DEFAULT_COLLECT_CLICKS_PER_SECOND = 10; // 收取目标附魔书时每秒最多点击次数
+    static final int MAX_COLLECT_CLICKS_PER_SECOND = 100;
+
+    private static final Gson GSON = new Gson();
+
+    final int highlightColor;
+    final int openKey;
+    final HighlightStyle highlightStyle;
+    final boolean batchedRendering;
+    final boolean recordContainers;
+    final boolean nestedScan;
+    final boolean countBadge;
+    final boolean indexContainers;
+    final int frameBudgetMicros;
+    final int matchThreads;
+    final int collectClicksPerSecond;
+    final Map<String, Boolean> screens;
+    final List<HighlightRule> rules;
+    final Map<String, Boolean> targets;
+    // 带等级条件的目标（名称 -> 条件），不在其中的目标不限等级
+    final Map<String, HighlightRule.Condition> levels;
+
+    ConfigData(int highlightColor, int openKey, HighlightStyle highlightStyle,
+                       boolean batchedRendering, boolean recordContainers, boolean nestedScan, boolean countBadge,
+                       boolean indexContainers, int frameBudgetMicros, int matchThreads,
+                       int collectClicksPerSecond,
+                       Map<String, Boolean> screens, List<HighlightRule> rules,
+                       Map<String, Boolean> targets, Map<String, HighlightRule.Condition> levels) {
+        this.highlightColor = highlightColor;
+        this.openKey = openKey;
+        this.highlightStyle = highlightStyle;
+        this.batchedRendering = batchedRendering;
+        this.recordContainers = recordContainers;
+        this.nestedScan = nestedScan;
+        this.countBadge = countBadge;
+        this.indexContainers = indexContainers;
+        this.frameBudgetMicros = frameBudgetMicros;
+        this.matchThreads = matchThreads;
+        this.collectClicksPerSecond = collectClicksPerSecond;
+        this.screens = Collections.unmodifiableMap(new LinkedHashMap<>(screens));
+        this.rules = List.copyOf(rules);
+        this.targets = Collections.unmodifiableMap(new LinkedHashMap<>(targets));
+        this.levels = Collections.unmodifiableMap(new LinkedHashMap<>(levels));
+    }
+
+    static ConfigData read(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    static ConfigData parse(Reader reader) throws IOException {
+        JsonObject obj;
+        try {
+            obj = GSON.fromJson(reader, JsonObject.class);
+        } catch (RuntimeException e) {
+            throw new IOException("配置文件不是合法的 JSON", e);
+        }
+        if (obj == null) {
+            throw new IOException("配置文件为空");
+        }
+        return parse(obj);
+    }
+
+    static ConfigData parse(JsonObject obj) {
+        int color = obj.has("highlightColor")
+                ? ConfigManager.parseColor(obj.get("highlightColor").getAsString(), DEFAULT_COLOR)
+                : DEFAULT_COLOR;
+        int openKey = obj.has("openKey") ? obj.get("openKey").getAsInt() : GLFW.GLFW_KEY_B;
+        HighlightStyle style = obj.has("highlightStyle")
+                ? HighlightStyle.fromString(obj.get("highlightStyle").getAsString(), HighlightStyle.FILL)
+                : HighlightStyle.FILL;
+        boolean batched = !obj.has("batchedRendering") || obj.get("batchedRendering").getAsBoolean();
+        boolean record = obj.has("recordContainers") && obj.get("recordContainers").getAsBoolean();
+        boolean nested = !obj.has("nestedScan") || obj.get("nestedScan").getAsBoolean();
+        boolean badge = !obj.has("countBadge") || obj.get("countBadge").getAsBoolean();
+        boolean index = !obj.has("indexContainers") || obj.get("indexContainers").getAsBoolean();
+        int budget = obj.has("frameBudgetMicros")
+                ? Math.max(0, obj.get("frameBudgetMicros").getAsInt())
+                : DEFAULT_FRAME_BUDGET_MICROS;
+        int threads = obj.has("matchThreads")
+                ? Math.max(AUTO_MATCH_THREADS, obj.get("matchThreads").getAsInt())
+                : AUTO_MATCH_THREADS;
+        int clicks = obj.has("collectClicksPerSecond")
+                ? clampClicks(obj.get("collectClicksPerSecond").getAsInt())
+                : DEFAULT_COLLECT_CLICKS_PER_SECOND;
+
+        // 按界面类型（扫描策略 id）开关，没写的类型取策略默认值
+        Map<String, Boolean> screens = new LinkedHashMap<>();
+        if (obj.has("screens") && obj.get("screens").isJsonObject()) {
+            for (var entry : obj.getAsJsonObject("screens").entrySet()) {
+                if (entry.getValue().isJsonPrimitive()) {
+                    screens.put(entry.getKey(), entry.getValue().getAsBoolean());
+                }
+            }
+        }
+
+        List<HighlightRule> rules = new ArrayList<>();
+        if (obj.has("rules") && obj.get("rules").isJsonArray()) {
+            for (JsonElement e : obj.getAsJsonArray("rules")) {
+                HighlightRule rule = e.isJsonObject() ? parseRule(e.getAsJsonObject()) : null;
+                if (rule != null) {
+                    rules.add(rule);
+                }
+            }
+        }
+
+        Map<String, Boolean> targets = new LinkedHashMap<>();
+        Map<String, HighlightRule.Condition> levels = new LinkedHashMap<>();
+        if (obj.has("targets") && obj.get("targets").isJsonArray()) {
+            obj.getAsJsonArray("targets").forEach(e -> {
+                if (e.isJsonObject()) {
+                    JsonObject o = e.getAsJsonObject();
+                    String name = o.has("name") ? o.get("name").getAsString() : null;
+                    boolean visible = !o.has("visible") || o.get("visible").getAsBoolean();
+                    if (name != null && !name.isBlank()) {
+                        targets.put(name.trim(), visible);
+                        HighlightRule.Condition c = readLevels(o, name.trim());
+                        if (c.hasLevelConstraint()) {
+                            levels.put(name.trim(), c);
+                        }
+                    }
+                }
+            });
+        } else if (obj.has("names") && obj.get("names").isJsonArray()) {
+            obj.getAsJsonArray("names").forEach(e -> {
+                String s = e.getAsString();
+                if (s != null && !s.isBlank()) {
+                    targets.put(s.trim(), true);
+                }
+            });
+        }
+        return new ConfigData(color, openKey, style, batched, record, nested, badge, index, budget, threads, clicks, screens, rules, targets, levels);
+    }
+
+    static ConfigData defaults() {
+        return new ConfigData(DEFAULT_COLOR, GLFW.GLFW_KEY_B, HighlightStyle.FILL, true, false, true, true, true,
+                DEFAULT_FRAME_BUDGET_MICROS, AUTO_MATCH_THREADS, DEFAULT_COLLECT_CLICKS_PER_SECOND,
+                new LinkedHashMap<>(), List.of(), new LinkedHashMap<>(), new LinkedHashMap<>());
+    }
+
+    static int clampClicks(int clicksPerSecond) {
+        return Math.max(1, Math.min(MAX_COLLECT_CLICKS_PER_SECOND, clicksPerSecond));
+    }
+
+    /**
+     * 一条规则，例如：
+     * {"name": "耐久三修补", "color": "0x80FF0000", "all": [{"enchant": "耐久", "level": 3}, {"enchant": "经验修补"}]}
+     * 条件里 level 表示精确等级，min / max 表示下限 / 上限；缺少颜色时沿用全局颜色。没有有效条件的规则被忽略。
+     */
+    static HighlightRule parseRule(JsonObject obj) {
+        if (!obj.has("all") || !obj.get("all").isJsonArray()) return null;
+        List<HighlightRule.Condition> conditions = new ArrayList<>();
+        for (JsonElement e : obj.getAsJsonArray("all")) {
+            if (!e.isJsonObject()) continue;
+            JsonObject c = e.getAsJsonObject();
+            String enchant = c.has("enchant") ? c.get("enchant").getAsString().trim() : "";
+            if (enchant.isEmpty()) continue;
+            conditions.add(readLevels(c, enchant));
+        }
+        if (conditions.isEmpty() || conditions.size() > HighlightRule.MAX_CONDITIONS) return null;
+        String name = obj.has("name") ? obj.get("name").getAsString() : "";
+        int color = obj.has("color")
+                ? ConfigManager.parseColor(obj.get("color").getAsString(), HighlightRule.NO_COLOR)
+                : HighlightRule.NO_COLOR;
+        return new HighlightRule(name, color, conditions);
+    }
+
+    static JsonObject ruleToJson(HighlightRule rule) {
+        JsonObject obj = new JsonObject();
+        if (!rule.getName().isEmpty()) {
+            obj.addProperty("name", rule.getName());
+        }
+        if (rule.getColor() != HighlightRule.NO_COLOR) {
+            obj.addProperty("color", String.format("0x%08X", rule.getColor()));
+        }
+        JsonArray all = new JsonArray();
+        for (HighlightRule.Condition c : rule.getConditions()) {
+            JsonObject co = new JsonObject();
+            co.addProperty("enchant", c.getEnchant());
+            writeLevels(co, c);
+            all.add(co);
+        }
+        obj.add("all", all);
+        return obj;
+    }
+
+    // 等级写法：level 为精确等级，min / max 为下限 / 上限，都没有则不限等级
+    private static HighlightRule.Condition readLevels(JsonObject obj, String enchant) {
+        int min = HighlightRule.ANY_LEVEL_MIN;
+        int max = HighlightRule.ANY_LEVEL_MAX;
+        if (obj.has("level")) {
+            min = max = obj.get("level").getAsInt();
+        }
+        if (obj.has("min")) min = obj.get("min").getAsInt();
+        if (obj.has("max")) max = obj.get("max").getAsInt();
+        return new HighlightRule.Condition(enchant, min, max);
+    }
+
+    private static void writeLevels(JsonObject obj, HighlightRule.Condition c) {
+        if (!c.hasLevelConstraint()) return;
+        if (c.getMinLevel() == c.getMaxLevel()) {
+            obj.addProperty("level", c.getMinLevel());
+        } else {
+            if (c.getMinLevel() != HighlightRule.ANY_LEVEL_MIN) obj.addProperty("min", c.getMinLevel());
+            if (c.getMaxLevel() != HighlightRule.ANY_LEVEL_MAX) obj.addProperty("max", c.getMaxLevel());
+        }
+    }
+
+    JsonObject toJson() {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("highlightColor", String.format("0x%08X", highlightColor));
+        obj.addProperty("openKey", openKey);
+        obj.addProperty("highlightStyle", highlightStyle.id());
+        obj.addProperty("batchedRendering", batchedRendering);
+        obj.addProperty("recordContainers", recordContainers);
+        obj.addProperty("nestedScan", nestedScan);
+        obj.addProperty("countBadge", countBadge);
+        obj.addProperty("indexContainers", indexContainers);
+        obj.addProperty("frameBudgetMicros", frameBudgetMicros);
+        obj.addProperty("matchThreads", matchThreads);
+        obj.addProperty("collectClicksPerSecond", collectClicksPerSecond);
+        JsonObject screenObj = new JsonObject();
+        screens.forEach(screenObj::addProperty);
+        obj.add("screens", screenObj);
+        JsonArray ruleArr = new JsonArray();
+        for (HighlightRule rule : rules) {
+            ruleArr.add(ruleToJson(rule));
+        }
+        obj.add("rules", ruleArr);
+        JsonArray arr = new JsonArray();
+        for (var entry : targets.entrySet()) {
+            JsonObject t = new JsonObject();
+            t.addProperty("name", entry.getKey());
+            t.addProperty("visible", entry.getValue());
+            HighlightRule.Condition c = levels.get(entry.getKey());
+            if (c != null) {
+                writeLevels(t, c);
+            }
+            arr.add(t);
+        }
+        obj.add("targets", arr);
+        return obj;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConfigData other)) return false;
+        // 目标顺序也算配置的一部分（界面按此顺序展示）
+        return highlightColor == other.highlightColor
+                && openKey == other.openKey
+                && highlightStyle == other.highlightStyle
+                && batchedRendering == other.batchedRendering
+                && recordContainers == other.recordContainers
+                && nestedScan == other.nestedScan
+                && countBadge == other.countBadge
+                && indexContainers == other.indexContainers
+                && frameBudgetMicros == other.frameBudgetMicros
+                && matchThreads == other.matchThreads
+                && collectClicksPerSecond == other.collectClicksPerSecond
+                && screens.equals(other.screens)
+                && rules.equals(other.rules)
+                && new ArrayList<>(targets.entrySet()).equals(new ArrayList<>(other.targets.entrySet()))
+                && levels.equals(other.levels);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(highlightColor, openKey, highlightStyle, batchedRendering, recordContainers, nestedScan, countBadge, indexContainers,
+                frameBudgetMicros, matchThreads, collectClicksPerSecond, screens, rules, targets, levels);
+    }
+}
@@ -0,0 +1,12 @@
+package cn.coatcn.bookhighlight;
+
+/**
+ * 配置变更监听：只在值真正变化时回调一次，携带旧值与新值。
+ * 回调发生在修改配置的线程上（界面操作或文件重载均为客户端线程），并持有 ConfigManager 的锁，
+ * 监听方应只做轻量工作。
+ */
+@FunctionalInterface
+public interface ConfigListener<T> {
+
+    void onChanged(T oldValue, T newValue);
+}
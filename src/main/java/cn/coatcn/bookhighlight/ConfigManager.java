@@ -1,8 +1,7 @@
 package cn.coatcn.bookhighlight;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
+import cn.coatcn.bookhighlight.core.EnchantNameIndex;
+import cn.coatcn.bookhighlight.core.HighlightRule;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.BufferedReader;
@@ -10,14 +9,18 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 import org.lwjgl.glfw.GLFW;
 
@@ -26,14 +29,19 @@ import org.lwjgl.glfw.GLFW;
  * 1）配置文件路径：.minecraft/config/book_highlight/targets_cn.json
  * 2）内容包含：高亮颜色（ARGB 16 进制字符串）与中文附魔名列表（names）
  * 3）首次运行若不存在，则从 resources/book_highlight/targets_cn.json 拷贝默认文件
+ * 4）外部修改由后台 ConfigWatcher 发现并解析，再回到客户端线程整体替换
+ * 5）保存交给 ConfigWriter 异步、原子地写入，界面不等待磁盘
+ * 6）目标、颜色、快捷键变化时通知 ConfigListener（缓存清理、按键重绑都订阅于此）
+ * 7）编进快照的字段（目标、等级条件、规则、深入扫描）由 change* 只改字段并返回是否变化，
+ *    一次 load / 重载 / 界面保存最后只重建、换代一次快照，再通知目标监听者
  */
 public class ConfigManager {
 
     private static final String CONFIG_DIR_NAME = "book_highlight";
     private static final String CONFIG_FILE_NAME = "targets_cn.json";
     private static final String INTERNAL_DEFAULT = "/book_highlight/targets_cn.json";
-
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    // 未被监听线程读到的写入最多记这么多份（写入失败或事件丢失时不至于一直累积）
+    private static final int MAX_UNCONSUMED_WRITES = 8;
 
     private static final ConfigManager INSTANCE = new ConfigManager();
 
@@ -41,15 +49,50 @@ public class ConfigManager {
         return INSTANCE;
     }
 
-    private Map<String, Boolean> targets = new LinkedHashMap<>();
-    private int highlightColor = 0x80FFD700; // 默认半透明金色
+    // 仅在持有锁时修改；读取方一律通过 snapshot
+    private final Map<String, Boolean> targets = new LinkedHashMap<>();
+    private final Map<String, HighlightRule.Condition> levels = new LinkedHashMap<>(); // 目标的等级条件
+    private int highlightColor = ConfigData.DEFAULT_COLOR;
     private int openKey = GLFW.GLFW_KEY_B;
+    private HighlightStyle highlightStyle = HighlightStyle.FILL;
+    private boolean batchedRendering = true; // 所有格子画完后一次性提交高亮
+    private boolean recordContainers = false; // 调试：把打开的容器内容录制到文件，供离线回放
+    private boolean nestedScan = true; // 深入潜影盒 / 收纳袋内部匹配
+    private boolean countBadge = true; // 容器物品上显示内部命中的附魔书数量
+    private boolean indexContainers = true; // 记录各个容器里见过的附魔书，供搜索
+    private int frameBudgetMicros = ConfigData.DEFAULT_FRAME_BUDGET_MICROS; // 每帧求值预算，0 为不限
+    private int matchThreads = ConfigData.AUTO_MATCH_THREADS; // 后台求值线程数，-1 为自动，0 为在渲染线程上求值
+    private int collectClicksPerSecond = ConfigData.DEFAULT_COLLECT_CLICKS_PER_SECOND; // 收取目标附魔书的点击限速
+    private List<HighlightRule> rules = List.of(); // 带颜色 / 等级条件的规则，优先于普通目标
+    // 扫描策略 id -> 是否启用（只记录明确写出的）；不可变，持锁整体替换，渲染线程无锁读取
+    private volatile Map<String, Boolean> screens = Map.of();
     private Path configPath;
     private long lastModified = 0L;
+    // 已发布的目标快照：渲染线程无锁读取；generation 每次重建自增
+    private volatile TargetSnapshot snapshot = TargetSnapshot.EMPTY;
+    private EnchantNameIndex enchantNames = EnchantNameIndex.EMPTY;
+    private volatile ConfigWatcher watcher;
+    private ConfigWriter writer;
+    // 已经（或正在）写到磁盘、但监听线程还没读到的自己的写入，按写入顺序排列。
+    // 只记最后一份不够：先后写 A、B 时，A 的读取结果可能在 B 落盘之后才回到客户端线程，会被当成外部修改把 B 回滚掉。
+    // 监听线程读到其中一份时连同更早的一起移除；已被读过的写入不再参与比较，之后手工改回同样的内容仍会生效
+    private final ArrayDeque<ConfigData> unconsumedWrites = new ArrayDeque<>();
+
+    private final List<ConfigListener<Map<String, Boolean>>> targetListeners = new CopyOnWriteArrayList<>();
+    private final List<ConfigListener<Integer>> colorListeners = new CopyOnWriteArrayList<>();
+    private final List<ConfigListener<Integer>> keyListeners = new CopyOnWriteArrayList<>();
 
-    private ConfigManager() {}
+    private ConfigManager() {
+    }
 
     public synchronized void loadOrInit() {
+        load("loadOrInit");
+    }
+
+    private synchronized void load(String source) {
+        ConfigReloadEvent event = new ConfigReloadEvent();
+        event.begin();
+        String outcome = "file";
         try {
             Path cfgDir = FabricLoader.getInstance().getConfigDir().resolve(CONFIG_DIR_NAME);
             Path cfgFile = cfgDir.resolve(CONFIG_FILE_NAME);
@@ -73,73 +116,181 @@ public class ConfigManager {
                 }
             }
             this.configPath = cfgFile;
-            // 读取配置
-            try (BufferedReader reader = Files.newBufferedReader(cfgFile, StandardCharsets.UTF_8)) {
-                JsonObject obj = GSON.fromJson(reader, JsonObject.class);
-                this.highlightColor = parseColor(obj.get("highlightColor").getAsString(), 0x80FFD700);
-                this.openKey = obj.has("openKey") ? obj.get("openKey").getAsInt() : GLFW.GLFW_KEY_B;
-                this.targets.clear();
-                if (obj.has("targets") && obj.get("targets").isJsonArray()) {
-                    obj.getAsJsonArray("targets").forEach(e -> {
-                        if (e.isJsonObject()) {
-                            JsonObject o = e.getAsJsonObject();
-                            String name = o.has("name") ? o.get("name").getAsString() : null;
-                            boolean visible = !o.has("visible") || o.get("visible").getAsBoolean();
-                            if (name != null && !name.isBlank()) {
-                                this.targets.put(name.trim(), visible);
-                            }
-                        }
-                    });
-                } else if (obj.has("names") && obj.get("names").isJsonArray()) {
-                    obj.getAsJsonArray("names").forEach(e -> {
-                        String s = e.getAsString();
-                        if (s != null && !s.isBlank()) {
-                            this.targets.put(s.trim(), true);
-                        }
-                    });
-                }
+            // 读取配置；主文件损坏时先尝试上一次的备份
+            try {
+                apply(ConfigData.read(cfgFile));
+            } catch (IOException e) {
+                Path backup = ConfigWriter.backupOf(cfgFile);
+                if (!Files.exists(backup)) throw e;
+                e.printStackTrace();
+                apply(ConfigData.read(backup));
+                outcome = "backup";
             }
             this.lastModified = Files.getLastModifiedTime(cfgFile).toMillis();
         } catch (Exception e) {
             e.printStackTrace();
             // 如果外部读失败，退回到内置默认
             loadFromInternalDefault();
+            outcome = "default";
+        }
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.outcome = outcome;
+            event.targets = targets.size();
+            event.commit();
         }
     }
 
     private void loadFromInternalDefault() {
-        this.targets.clear();
-        this.highlightColor = 0x80FFD700;
-        this.openKey = GLFW.GLFW_KEY_B;
+        apply(ConfigData.defaults());
         try (InputStream in = getClass().getResourceAsStream(INTERNAL_DEFAULT)) {
             if (in == null) return;
             try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
-                JsonObject obj = GSON.fromJson(br, JsonObject.class);
-                this.highlightColor = parseColor(obj.get("highlightColor").getAsString(), 0x80FFD700);
-                this.openKey = obj.has("openKey") ? obj.get("openKey").getAsInt() : GLFW.GLFW_KEY_B;
-                if (obj.has("targets") && obj.get("targets").isJsonArray()) {
-                    obj.getAsJsonArray("targets").forEach(e -> {
-                        if (e.isJsonObject()) {
-                            JsonObject o = e.getAsJsonObject();
-                            String name = o.has("name") ? o.get("name").getAsString() : null;
-                            boolean visible = !o.has("visible") || o.get("visible").getAsBoolean();
-                            if (name != null && !name.isBlank()) {
-                                this.targets.put(name.trim(), visible);
-                            }
-                        }
-                    });
-                } else if (obj.has("names") && obj.get("names").isJsonArray()) {
-                    obj.getAsJsonArray("names").forEach(e -> {
-                        String s = e.getAsString();
-                        if (s != null && !s.isBlank()) {
-                            this.targets.put(s.trim(), true);
-                        }
-                    });
-                }
+                apply(ConfigData.parse(br));
             }
         } catch (IOException ignored) {}
     }
 
+    // 用解析结果覆盖当前字段，并对真正变化的项通知监听者；调用方需持有锁
+    private void apply(ConfigData data) {
+        this.highlightStyle = data.highlightStyle;
+        this.batchedRendering = data.batchedRendering;
+        this.recordContainers = data.recordContainers;
+        this.countBadge = data.countBadge;
+        this.indexContainers = data.indexContainers;
+        this.frameBudgetMicros = data.frameBudgetMicros;
+        this.matchThreads = data.matchThreads;
+        this.collectClicksPerSecond = data.collectClicksPerSecond;
+        this.screens = data.screens;
+        changeColor(data.highlightColor);
+        changeOpenKey(data.openKey);
+        boolean rebuild = changeNestedScan(data.nestedScan);
+        rebuild |= changeRules(data.rules);
+        rebuild |= changeLevels(data.levels);
+        commitSnapshot(rebuild, changeTargets(data.targets));
+    }
+
+    // 快照相关字段改完之后调用：有变化时只重建一次快照，目标本身变了再通知监听者（此时已能读到新快照）
+    private void commitSnapshot(boolean rebuild, boolean targetsChanged) {
+        if (!rebuild && !targetsChanged) return;
+        Map<String, Boolean> old = snapshot.getTargets();
+        publishSnapshot();
+        if (targetsChanged) {
+            fire(targetListeners, old, snapshot.getTargets());
+        }
+    }
+
+    private void changeColor(int color) {
+        int old = this.highlightColor;
+        if (old == color) return;
+        this.highlightColor = color;
+        fire(colorListeners, old, color);
+    }
+
+    private void changeOpenKey(int key) {
+        int old = this.openKey;
+        if (old == key) return;
+        this.openKey = key;
+        fire(keyListeners, old, key);
+    }
+
+    private boolean changeTargets(Map<String, Boolean> newTargets) {
+        // 顺序也算变化：界面按此顺序展示
+        if (new ArrayList<>(targets.entrySet()).equals(new ArrayList<>(newTargets.entrySet()))) return false;
+        this.targets.clear();
+        this.targets.putAll(newTargets);
+        return true;
+    }
+
+    // 等级条件与目标一起编译进快照，变化时换代
+    private boolean changeLevels(Map<String, HighlightRule.Condition> newLevels) {
+        if (levels.equals(newLevels)) return false;
+        this.levels.clear();
+        this.levels.putAll(newLevels);
+        return true;
+    }
+
+    private static <T> void fire(List<ConfigListener<T>> listeners, T oldValue, T newValue) {
+        for (ConfigListener<T> l : listeners) {
+            try {
+                l.onChanged(oldValue, newValue);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public void addTargetsListener(ConfigListener<Map<String, Boolean>> listener) {
+        targetListeners.add(listener);
+    }
+
+    public void addColorListener(ConfigListener<Integer> listener) {
+        colorListeners.add(listener);
+    }
+
+    public void addKeyListener(ConfigListener<Integer> listener) {
+        keyListeners.add(listener);
+    }
+
+    private ConfigData current() {
+        return new ConfigData(highlightColor, openKey, highlightStyle, batchedRendering,
+                recordContainers, nestedScan, countBadge, indexContainers,
+                frameBudgetMicros, matchThreads, collectClicksPerSecond, screens, rules, targets, levels);
+    }
+
+    /**
+     * 由 ConfigWatcher 在后台解析后投递到客户端线程调用；内容未变或是本模组自己尚未被读到的写入时不做任何事
+     */
+    public synchronized void applyReloaded(ConfigData data, Path file) {
+        ConfigReloadEvent event = new ConfigReloadEvent();
+        event.begin();
+        boolean changed = !consumeOwnWrite(data) && !data.equals(current());
+        if (changed) {
+            // 外部修改：之前的写入都已被覆盖，不再需要识别
+            unconsumedWrites.clear();
+            apply(data);
+            this.configPath = file;
+            HighlightStats.getInstance().countReload();
+        }
+        if (event.shouldCommit()) {
+            event.source = "watcher";
+            event.outcome = changed ? "applied" : "unchanged";
+            event.targets = data.targets.size();
+            event.commit();
+        }
+    }
+
+    // 读到的内容是某一份自己的写入时，把它和更早的写入一起移除（监听线程按顺序读取，更早的不会再出现）
+    private boolean consumeOwnWrite(ConfigData data) {
+        int matched = 0;
+        int i = 0;
+        for (ConfigData written : unconsumedWrites) {
+            i++;
+            if (written.equals(data)) matched = i;
+        }
+        for (int k = 0; k < matched; k++) {
+            unconsumedWrites.removeFirst();
+        }
+        return matched > 0;
+    }
+
+    /**
+     * 启动后台监听线程；成功后 reloadIfChanged 不再需要每 tick 检查文件
+     */
+    public synchronized void startWatching(Executor applyExecutor) {
+        if (watcher != null && watcher.isRunning()) return;
+        Path cfgDir = FabricLoader.getInstance().getConfigDir().resolve(CONFIG_DIR_NAME);
+        ConfigWatcher w = new ConfigWatcher(cfgDir, CONFIG_FILE_NAME, applyExecutor);
+        if (w.start()) {
+            this.watcher = w;
+        }
+    }
+
+    public boolean isWatching() {
+        ConfigWatcher w = watcher;
+        return w != null && w.isRunning();
+    }
+
     public static int parseColor(String hex, int fallback) {
         try {
             String h = hex.trim().toLowerCase();
@@ -161,23 +312,61 @@ public class ConfigManager {
         }
     }
 
+    // 以当前 targets 重建快照并发布，调用方需持有锁；一般经由 commitSnapshot 调用
+    private void publishSnapshot() {
+        this.snapshot = new TargetSnapshot(snapshot.getGeneration() + 1, rules, targets, levels, enchantNames, nestedScan);
+    }
+
+    // 规则与目标一起编译进快照，变化时同样换代
+    private boolean changeRules(List<HighlightRule> newRules) {
+        if (rules.equals(newRules)) return false;
+        this.rules = List.copyOf(newRules);
+        return true;
+    }
+
+    // 深入扫描开关改变匹配结果，和目标变化一样需要换代
+    private boolean changeNestedScan(boolean nested) {
+        if (nested == this.nestedScan) return false;
+        this.nestedScan = nested;
+        return true;
+    }
+
+    // 资源/语言重载后更新附魔名称索引，重新解析目标 id
+    public synchronized void setEnchantNameIndex(EnchantNameIndex index) {
+        this.enchantNames = index != null ? index : EnchantNameIndex.EMPTY;
+        publishSnapshot();
+    }
+
+    public TargetSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     public Map<String, Boolean> getTargetMap() {
-        return targets;
+        return snapshot.getTargets();
+    }
+
+    /**
+     * 目标的等级条件（名称 -> 条件），不限等级的目标不在其中
+     */
+    public Map<String, HighlightRule.Condition> getTargetLevels() {
+        return snapshot.getLevels();
     }
 
     public Set<String> getVisibleNamesCn() {
-        return targets.entrySet().stream()
-                .filter(Map.Entry::getValue)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+        return snapshot.getVisibleNames();
+    }
+
+    public long getGeneration() {
+        return snapshot.getGeneration();
     }
 
     public int getOpenKey() {
         return openKey;
     }
 
-    public void setOpenKey(int key) {
-        this.openKey = key;
+    public synchronized void setOpenKey(int key) {
+        if (key == openKey) return;
+        changeOpenKey(key);
         saveCurrentToConfig();
     }
 
@@ -185,57 +374,221 @@ public class ConfigManager {
         return highlightColor;
     }
 
-    public void setHighlightColor(int color) {
-        this.highlightColor = color;
+    public synchronized void setHighlightColor(int color) {
+        if (color == highlightColor) return;
+        changeColor(color);
         saveCurrentToConfig();
     }
 
-    // 将当前配置写回并更新修改时间
-    public synchronized void saveCurrentToConfig() {
-        try {
-            Path cfgDir = FabricLoader.getInstance().getConfigDir().resolve(CONFIG_DIR_NAME);
-            Path cfgFile = cfgDir.resolve(CONFIG_FILE_NAME);
-            if (!Files.exists(cfgDir)) Files.createDirectories(cfgDir);
-
-            JsonObject obj = new JsonObject();
-            obj.addProperty("highlightColor", String.format("0x%08X", highlightColor));
-            obj.addProperty("openKey", openKey);
-            var arr = new com.google.gson.JsonArray();
-            for (var entry : targets.entrySet()) {
-                JsonObject t = new JsonObject();
-                t.addProperty("name", entry.getKey());
-                t.addProperty("visible", entry.getValue());
-                arr.add(t);
-            }
-            obj.add("targets", arr);
+    public HighlightStyle getHighlightStyle() {
+        return highlightStyle;
+    }
 
-            try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(cfgFile), StandardCharsets.UTF_8))) {
-                bw.write(GSON.toJson(obj));
-            }
+    public synchronized void setHighlightStyle(HighlightStyle style) {
+        HighlightStyle s = style != null ? style : HighlightStyle.FILL;
+        if (s == highlightStyle) return;
+        this.highlightStyle = s;
+        saveCurrentToConfig();
+    }
+
+    public boolean isBatchedRendering() {
+        return batchedRendering;
+    }
+
+    public synchronized void setBatchedRendering(boolean batched) {
+        if (batched == batchedRendering) return;
+        this.batchedRendering = batched;
+        saveCurrentToConfig();
+    }
+
+    // 模组自己的配置目录（config/book_highlight），录制文件等也放在这里
+    public Path getConfigDir() {
+        return FabricLoader.getInstance().getConfigDir().resolve(CONFIG_DIR_NAME);
+    }
+
+    /**
+     * 某类容器界面是否启用高亮；配置里没写明时返回 defaultValue
+     */
+    public boolean isScreenEnabled(String id, boolean defaultValue) {
+        Boolean enabled = screens.get(id);
+        return enabled != null ? enabled : defaultValue;
+    }
+
+    public synchronized void setScreenEnabled(String id, boolean enabled) {
+        if (Boolean.valueOf(enabled).equals(screens.get(id))) return;
+        Map<String, Boolean> copy = new LinkedHashMap<>(screens);
+        copy.put(id, enabled);
+        this.screens = Collections.unmodifiableMap(copy);
+        saveCurrentToConfig();
+    }
+
+    public List<HighlightRule> getRules() {
+        return rules;
+    }
+
+    public synchronized void setRules(List<HighlightRule> newRules) {
+        if (changeRules(newRules != null ? newRules : List.of())) {
+            commitSnapshot(true, false);
+            saveCurrentToConfig();
+        }
+    }
+
+    public boolean isNestedScan() {
+        return nestedScan;
+    }
+
+    public synchronized void setNestedScan(boolean nested) {
+        if (!changeNestedScan(nested)) return;
+        commitSnapshot(true, false);
+        saveCurrentToConfig();
+    }
+
+    public boolean isCountBadge() {
+        return countBadge;
+    }
+
+    public synchronized void setCountBadge(boolean badge) {
+        if (badge == countBadge) return;
+        this.countBadge = badge;
+        saveCurrentToConfig();
+    }
+
+    /**
+     * 每帧用于求值的时间预算（纳秒），0 表示不限（整个容器在一帧内算完）
+     */
+    public long getFrameBudgetNanos() {
+        return frameBudgetMicros * 1000L;
+    }
+
+    public int getFrameBudgetMicros() {
+        return frameBudgetMicros;
+    }
+
+    public synchronized void setFrameBudgetMicros(int micros) {
+        int m = Math.max(0, micros);
+        if (m == frameBudgetMicros) return;
+        this.frameBudgetMicros = m;
+        saveCurrentToConfig();
+    }
+
+    /**
+     * 后台求值线程数：-1 为按 CPU 核数自动决定，0 为不使用后台线程（在渲染线程上按预算求值）
+     */
+    public int getMatchThreads() {
+        return matchThreads;
+    }
+
+    public synchronized void setMatchThreads(int threads) {
+        int t = Math.max(ConfigData.AUTO_MATCH_THREADS, threads);
+        if (t == matchThreads) return;
+        this.matchThreads = t;
+        saveCurrentToConfig();
+    }
+
+    /**
+     * 收取目标附魔书时每秒最多点击次数（1~100），见 BookCollector
+     */
+    public int getCollectClicksPerSecond() {
+        return collectClicksPerSecond;
+    }
+
+    public synchronized void setCollectClicksPerSecond(int clicksPerSecond) {
+        int cps = ConfigData.clampClicks(clicksPerSecond);
+        if (cps == collectClicksPerSecond) return;
+        this.collectClicksPerSecond = cps;
+        saveCurrentToConfig();
+    }
+
+    public boolean isIndexContainers() {
+        return indexContainers;
+    }
+
+    public synchronized void setIndexContainers(boolean index) {
+        if (index == indexContainers) return;
+        this.indexContainers = index;
+        saveCurrentToConfig();
+    }
+
+    public boolean isRecordContainers() {
+        return recordContainers;
+    }
+
+    public synchronized void setRecordContainers(boolean record) {
+        if (record == recordContainers) return;
+        this.recordContainers = record;
+        saveCurrentToConfig();
+    }
+
+    // 把当前配置交给后台写入线程（合并短时间内的多次修改），不阻塞调用方
+    public synchronized void saveCurrentToConfig() {
+        if (writer == null) {
+            Path cfgFile = FabricLoader.getInstance().getConfigDir().resolve(CONFIG_DIR_NAME).resolve(CONFIG_FILE_NAME);
+            this.writer = new ConfigWriter(cfgFile);
             this.configPath = cfgFile;
-            this.lastModified = Files.getLastModifiedTime(cfgFile).toMillis();
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        writer.submit(current());
+    }
+
+    // 由写入线程在替换文件之前回调（被合并掉、从未落盘的提交不会登记）；监听线程可能在 onSaved 之前就读到这份内容
+    synchronized void onWriting(ConfigData data) {
+        if (!isWatching()) return;
+        unconsumedWrites.addLast(data);
+        while (unconsumedWrites.size() > MAX_UNCONSUMED_WRITES) {
+            unconsumedWrites.removeFirst();
+        }
+    }
+
+    // 由写入线程在落盘完成后回调
+    synchronized void onSaved(ConfigData data, long modifiedMillis) {
+        this.lastModified = modifiedMillis;
+        HighlightStats.getInstance().countSave();
     }
 
-    // 检测文件是否被外部修改，若是则重新加载
+    /**
+     * 立即写出尚未落盘的修改（客户端退出时调用）
+     */
+    public void flushPendingSave() {
+        ConfigWriter w;
+        synchronized (this) {
+            w = writer;
+        }
+        if (w != null) w.flush();
+    }
+
+    // 检测文件是否被外部修改，若是则重新加载（仅在后台监听不可用时作为兜底）
     public void reloadIfChanged() {
         if (configPath == null) return;
         try {
             long lm = Files.getLastModifiedTime(configPath).toMillis();
             if (lm != lastModified) {
-                loadOrInit();
+                load("reloadIfChanged");
+                HighlightStats.getInstance().countReload();
             }
         } catch (IOException ignored) {}
     }
 
     // 更新目标附魔集合（来自界面），并立即保存
-    public void updateTargets(Map<String, Boolean> newTargets) {
-        this.targets.clear();
-        if (newTargets != null) {
-            this.targets.putAll(newTargets);
+    public synchronized void updateTargets(Map<String, Boolean> newTargets) {
+        if (changeTargets(newTargets != null ? newTargets : Collections.emptyMap())) {
+            commitSnapshot(false, true);
+            saveCurrentToConfig();
+        }
+    }
+
+    // 同时更新目标与等级条件（来自编辑界面），只保留仍在目标中的条件
+    public synchronized void updateTargets(Map<String, Boolean> newTargets, Map<String, HighlightRule.Condition> newLevels) {
+        Map<String, Boolean> t = newTargets != null ? newTargets : Collections.emptyMap();
+        Map<String, HighlightRule.Condition> l = new LinkedHashMap<>();
+        if (newLevels != null) {
+            newLevels.forEach((name, c) -> {
+                if (t.containsKey(name) && c.hasLevelConstraint()) l.put(name, c);
+            });
+        }
+        boolean levelsChanged = changeLevels(l);
+        boolean targetsChanged = changeTargets(t);
+        if (levelsChanged || targetsChanged) {
+            commitSnapshot(levelsChanged, targetsChanged);
+            saveCurrentToConfig();
         }
-        saveCurrentToConfig();
     }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package cn.coatcn.bookhighlight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次配置加载（loadOrInit / reloadIfChanged / 后台监听线程投递的重载）。默认关闭。
+ */
+@Name("cn.coatcn.bookhighlight.ConfigReload")
+@Label("Config Reload")
+@Category({"Book Highlight"})
+@Description("Load of targets_cn.json into ConfigManager")
+@Enabled(false)
+@StackTrace(false)
+public class ConfigReloadEvent extends Event {
+
+    @Label("Source")
+    @Description("loadOrInit, reloadIfChanged or watcher")
+    public String source;
+
+    @Label("Outcome")
+    @Description("file, backup, default, applied or unchanged")
+    public String outcome;
+
+    @Label("Targets")
+    public int targets;
+}
@@ -0,0 +1,33 @@
+package cn.coatcn.bookhighlight;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：ConfigWriter 后台线程的一次落盘（saveCurrentToConfig 合并后的写入）。默认关闭。
+ */
+@Name("cn.coatcn.bookhighlight.ConfigSave")
+@Label("Config Save")
+@Category({"Book Highlight"})
+@Description("Atomic write of targets_cn.json by the background writer")
+@Enabled(false)
+@StackTrace(false)
+public class ConfigSaveEvent extends Event {
+
+    @Label("Targets")
+    public int targets;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Outcome")
+    @Description("ok, or the exception class name")
+    public String outcome;
+}
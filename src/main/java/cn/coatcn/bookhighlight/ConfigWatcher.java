@@ -0,0 +1,112 @@
+package cn.coatcn.bookhighlight;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置文件监听（后台守护线程）：
+ * 1）用 WatchService 监听 config/book_highlight 目录，只关心配置文件本身
+ * 2）一阵连续写入结束后（防抖）才重新读取，解析在本线程完成
+ * 3）解析成功后把结果交给客户端线程，由 ConfigManager 整体替换；解析失败（例如编辑器写到一半）则保留当前配置
+ */
+public class ConfigWatcher implements Runnable {
+
+    private static final long DEBOUNCE_MS = 250L;
+
+    private final Path dir;
+    private final String fileName;
+    private final Executor applyExecutor;
+    private volatile WatchService watchService;
+    private volatile boolean running = false;
+
+    public ConfigWatcher(Path dir, String fileName, Executor applyExecutor) {
+        this.dir = dir;
+        this.fileName = fileName;
+        this.applyExecutor = applyExecutor;
+    }
+
+    /**
+     * 启动监听线程；当前文件系统不支持监听时返回 false
+     */
+    public boolean start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            e.printStackTrace();
+            return false;
+        }
+        running = true;
+        Thread thread = new Thread(this, "BookHighlight-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException ignored) {}
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                WatchKey key = watchService.take();
+                boolean relevant = drain(key);
+                if (!relevant) continue;
+
+                // 防抖：直到安静 DEBOUNCE_MS 没有新事件才读取
+                WatchKey more;
+                while ((more = watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(more);
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } finally {
+            running = false;
+        }
+    }
+
+    // 取出 key 上的全部事件并重置，返回其中是否有配置文件本身的变化
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+            } else if (event.context() instanceof Path p && p.toString().equals(fileName)) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    private void reload() {
+        Path file = dir.resolve(fileName);
+        try {
+            ConfigData data = ConfigData.read(file);
+            applyExecutor.execute(() -> ConfigManager.getInstance().applyReloaded(data, file));
+        } catch (Exception e) {
+            // 保留当前配置，等下一次写入完成后再试
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package cn.coatcn.bookhighlight;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 配置异步写入（单线程）：
+ * 1）界面线程只提交一份不可变的 ConfigData，从不等待磁盘
+ * 2）短时间内的多次修改合并为一次写入，只落盘最后一份
+ * 3）先写临时文件并 force 到磁盘，再 ATOMIC_MOVE 覆盖，崩溃或断电时不会留下半截 JSON；
+ *    覆盖前把旧文件保留为 .bak，但只在旧文件能正常解析时才更新，不会用损坏的文件顶掉好的备份
+ */
+public class ConfigWriter {
+
+    private static final long COALESCE_MS = 200L;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Path file;
+    private final Path tmpFile;
+    private final Path backupFile;
+    private final AtomicReference<ConfigData> pending = new AtomicReference<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "BookHighlight-ConfigWriter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ConfigWriter(Path file) {
+        this.file = file;
+        this.tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.backupFile = backupOf(file);
+    }
+
+    public static Path backupOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".bak");
+    }
+
+    /**
+     * 提交一份待写入的配置；已有待写入内容时直接替换，不重复排队
+     */
+    public void submit(ConfigData data) {
+        if (pending.getAndSet(data) == null) {
+            executor.schedule(this::writePending, COALESCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 立即写出尚未落盘的内容并等待完成（用于客户端退出）
+     */
+    public void flush() {
+        try {
+            executor.submit(this::writePending).get(2, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 写出尚未落盘的内容后停止写入线程；之后 submit 的内容不再写出
+     */
+    public void close() {
+        flush();
+        executor.shutdown();
+    }
+
+    private void writePending() {
+        ConfigData data = pending.getAndSet(null);
+        if (data == null) return;
+        ConfigSaveEvent event = new ConfigSaveEvent();
+        event.begin();
+        String outcome = "ok";
+        long bytes = 0L;
+        try {
+            ConfigManager.getInstance().onWriting(data);
+            bytes = write(data);
+            ConfigManager.getInstance().onSaved(data, Files.getLastModifiedTime(file).toMillis());
+        } catch (Exception e) {
+            e.printStackTrace();
+            outcome = e.getClass().getSimpleName();
+        }
+        if (event.shouldCommit()) {
+            event.targets = data.targets.size();
+            event.bytes = bytes;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    /**
+     * 在调用线程上同步写出一份配置，不通知 ConfigManager；返回写入后的文件大小
+     */
+    long write(ConfigData data) throws IOException {
+        Files.createDirectories(file.getParent());
+        ByteBuffer buf = ByteBuffer.wrap(GSON.toJson(data.toJson()).getBytes(StandardCharsets.UTF_8));
+        try (FileChannel ch = FileChannel.open(tmpFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            // 内容落到磁盘之后再替换，否则断电后可能得到一个已改名、内容却为空的文件
+            ch.force(true);
+        }
+        if (isReadable(file)) {
+            Files.copy(file, backupFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Files.size(file);
+    }
+
+    // 文件存在且能解析为配置（手动改坏、或上次写入被截断的文件不拿来当备份）
+    private static boolean isReadable(Path path) {
+        if (!Files.exists(path)) return false;
+        try {
+            ConfigData.read(path);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.EnchantNameIndex;
+import cn.coatcn.bookhighlight.core.HighlightRule;
+import com.google.gson.JsonParser;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.nbt.NbtTagSizeTracker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次容器内容的录制（不可变），文件为 gzip 压缩的 NBT：
+ * 1）容器格子：格子序号 + 物品栈完整 NBT（空格子不记录）
+ * 2）录制时可见的目标名称，以及“中文名规范键 -> raw id”索引，离线回放时不依赖语言文件也能得到相同结果
+ * 3）数据版本号：raw id 只在同一游戏版本内有意义，回放时据此提示
+ * 4）目标快照里的规则、等级条件与 nestedScan 开关（格式 2 起），回放时据此编译出与录制时相同的匹配器；
+ *    格式 1 的文件没有这些，按无规则、不限等级、不深入内部处理
+ *
+ * 录制由客户端在调试模式下完成（ContainerRecorder），回放工具在 src/jmh 下（ContainerReplay）。
+ */
+public final class ContainerRecording {
+
+    public static final String FILE_SUFFIX = ".dat";
+
+    private static final int FORMAT = 2;
+    private static final int FORMAT_TARGETS_ONLY = 1;
+
+    private final long time;
+    private final String screen;
+    private final int dataVersion;
+    private final int size;
+    private final NbtCompound[] slots;
+    private final List<String> targets;
+    private final Map<String, int[]> names;
+    private final List<HighlightRule> rules;
+    private final Map<String, HighlightRule.Condition> levels;
+    private final boolean nestedScan;
+
+    public ContainerRecording(long time, String screen, int dataVersion, int size, NbtCompound[] slots,
+                              Collection<String> targets, Map<String, int[]> names, List<HighlightRule> rules,
+                              Map<String, HighlightRule.Condition> levels, boolean nestedScan) {
+        this.time = time;
+        this.screen = screen;
+        this.dataVersion = dataVersion;
+        this.size = size;
+        this.slots = slots;
+        this.targets = Collections.unmodifiableList(new ArrayList<>(targets));
+        this.names = Collections.unmodifiableMap(new LinkedHashMap<>(names));
+        this.rules = List.copyOf(rules);
+        this.levels = Collections.unmodifiableMap(new LinkedHashMap<>(levels));
+        this.nestedScan = nestedScan;
+    }
+
+    /**
+     * 在客户端线程上复制容器内容（之后的写文件可交给后台线程）
+     */
+    public static ContainerRecording capture(String screen, List<ItemStack> stacks, TargetSnapshot snapshot) {
+        NbtCompound[] slots = new NbtCompound[stacks.size()];
+        for (int i = 0; i < slots.length; i++) {
+            ItemStack stack = stacks.get(i);
+            if (stack != null && !stack.isEmpty()) {
+                slots[i] = stack.writeNbt(new NbtCompound());
+            }
+        }
+        EnchantNameIndex index = snapshot.getIndex();
+        return new ContainerRecording(System.currentTimeMillis(), screen,
+                SharedConstants.getGameVersion().getSaveVersion().getId(), slots.length, slots,
+                snapshot.getVisibleNames(), index.getNames(), snapshot.getRules(), snapshot.getLevels(),
+                snapshot.isNestedScan());
+    }
+
+    public static ContainerRecording read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return fromNbt(NbtIo.readCompressed(in, NbtTagSizeTracker.ofUnlimitedBytes()));
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            NbtIo.writeCompressed(toNbt(), out);
+        }
+    }
+
+    public NbtCompound toNbt() {
+        NbtCompound root = new NbtCompound();
+        root.putInt("Format", FORMAT);
+        root.putInt("DataVersion", dataVersion);
+        root.putLong("Time", time);
+        root.putString("Screen", screen);
+        root.putInt("Size", size);
+
+        NbtList slotList = new NbtList();
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) continue;
+            NbtCompound slot = new NbtCompound();
+            slot.putInt("Slot", i);
+            slot.put("Item", slots[i]);
+            slotList.add(slot);
+        }
+        root.put("Slots", slotList);
+
+        NbtList targetList = new NbtList();
+        for (String t : targets) {
+            targetList.add(NbtString.of(t));
+        }
+        root.put("Targets", targetList);
+
+        NbtCompound nameTag = new NbtCompound();
+        for (var entry : names.entrySet()) {
+            nameTag.putIntArray(entry.getKey(), entry.getValue());
+        }
+        root.put("Names", nameTag);
+
+        // 规则沿用配置文件里的 JSON 写法，等级条件沿用界面上的写法（见 HighlightRule.Condition.parse）
+        NbtList ruleList = new NbtList();
+        for (HighlightRule rule : rules) {
+            ruleList.add(NbtString.of(ConfigData.ruleToJson(rule).toString()));
+        }
+        root.put("Rules", ruleList);
+
+        NbtCompound levelTag = new NbtCompound();
+        for (var entry : levels.entrySet()) {
+            levelTag.putString(entry.getKey(), entry.getValue().levelSpec());
+        }
+        root.put("Levels", levelTag);
+        root.putBoolean("NestedScan", nestedScan);
+        return root;
+    }
+
+    public static ContainerRecording fromNbt(NbtCompound root) throws IOException {
+        int format = root.getInt("Format");
+        if (format != FORMAT && format != FORMAT_TARGETS_ONLY) {
+            throw new IOException("不支持的录制格式：" + format);
+        }
+        int size = root.getInt("Size");
+        NbtCompound[] slots = new NbtCompound[size];
+        NbtList slotList = root.getList("Slots", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < slotList.size(); i++) {
+            NbtCompound slot = slotList.getCompound(i);
+            int index = slot.getInt("Slot");
+            if (index >= 0 && index < size) {
+                slots[index] = slot.getCompound("Item");
+            }
+        }
+
+        List<String> targets = new ArrayList<>();
+        NbtList targetList = root.getList("Targets", NbtElement.STRING_TYPE);
+        for (int i = 0; i < targetList.size(); i++) {
+            targets.add(targetList.getString(i));
+        }
+
+        Map<String, int[]> names = new HashMap<>();
+        NbtCompound nameTag = root.getCompound("Names");
+        for (String key : nameTag.getKeys()) {
+            names.put(key, nameTag.getIntArray(key));
+        }
+
+        // 格式 1 没有这几项，读出来都是空的
+        List<HighlightRule> rules = new ArrayList<>();
+        NbtList ruleList = root.getList("Rules", NbtElement.STRING_TYPE);
+        for (int i = 0; i < ruleList.size(); i++) {
+            HighlightRule rule;
+            try {
+                rule = ConfigData.parseRule(JsonParser.parseString(ruleList.getString(i)).getAsJsonObject());
+            } catch (RuntimeException e) {
+                throw new IOException("录制中的规则无法解析：" + ruleList.getString(i), e);
+            }
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+
+        Map<String, HighlightRule.Condition> levels = new LinkedHashMap<>();
+        NbtCompound levelTag = root.getCompound("Levels");
+        for (String name : levelTag.getKeys()) {
+            HighlightRule.Condition c = HighlightRule.Condition.parse(name, levelTag.getString(name));
+            if (c == null) {
+                throw new IOException("录制中的等级条件无法解析：" + name + " " + levelTag.getString(name));
+            }
+            if (c.hasLevelConstraint()) {
+                levels.put(name, c);
+            }
+        }
+        return new ContainerRecording(root.getLong("Time"), root.getString("Screen"), root.getInt("DataVersion"),
+                size, slots, targets, names, rules, levels, root.getBoolean("NestedScan"));
+    }
+
+    /**
+     * 还原出的物品栈；空格子为 ItemStack.EMPTY。每次调用都会新建对象（相当于服务端重新下发一次）
+     */
+    public List<ItemStack> toStacks() {
+        List<ItemStack> stacks = new ArrayList<>(size);
+        for (NbtCompound slot : slots) {
+            stacks.add(slot != null ? ItemStack.fromNbt(slot) : ItemStack.EMPTY);
+        }
+        return stacks;
+    }
+
+    /**
+     * 格子内容是否与另一次录制相同（用来跳过重复录制）
+     */
+    public boolean hasSameSlots(ContainerRecording other) {
+        return other != null && Arrays.equals(slots, other.slots);
+    }
+
+    public boolean isEmpty() {
+        for (NbtCompound slot : slots) {
+            if (slot != null) return false;
+        }
+        return true;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getScreen() {
+        return screen;
+    }
+
+    public int getDataVersion() {
+        return dataVersion;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    public Map<String, int[]> getNames() {
+        return names;
+    }
+
+    /**
+     * 录制时的规则（不含由普通目标生成的规则）
+     */
+    public List<HighlightRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * 录制时带等级条件的目标（名称 -> 条件）
+     */
+    public Map<String, HighlightRule.Condition> getLevels() {
+        return levels;
+    }
+
+    public boolean isNestedScan() {
+        return nestedScan;
+    }
+}
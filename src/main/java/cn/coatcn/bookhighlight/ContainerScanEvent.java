@@ -0,0 +1,39 @@
+package cn.coatcn.bookhighlight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次容器重新扫描（从开始到全部格子求值完毕，受每帧预算限制时可能跨越多帧）。
+ * 默认关闭，只在录制配置中显式开启时才提交；关闭时 shouldCommit() 恒为 false，字段不会被填写。
+ */
+@Name("cn.coatcn.bookhighlight.ContainerScan")
+@Label("Container Scan")
+@Category({"Book Highlight"})
+@Description("Rescan of the container slots after a revision or target change")
+@Enabled(false)
+@StackTrace(false)
+public class ContainerScanEvent extends Event {
+
+    @Label("Slots")
+    public int slots;
+
+    @Label("Matches")
+    public int matches;
+
+    @Label("Cache Misses")
+    @Description("Slots that had to be evaluated instead of read from MatchCache")
+    public long cacheMisses;
+
+    @Label("Generation")
+    public long generation;
+
+    @Label("Frames")
+    @Description("Frames it took to evaluate every slot under the per-frame budget")
+    public int frames;
+}
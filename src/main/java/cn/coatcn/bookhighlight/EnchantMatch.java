@@ -1,81 +1,107 @@
 package cn.coatcn.bookhighlight;
 
-import net.minecraft.enchantment.EnchantmentHelper;
+import cn.coatcn.bookhighlight.core.LoreDecoder;
+import cn.coatcn.bookhighlight.core.NameNormalizer;
+import cn.coatcn.bookhighlight.core.StackModel;
+import net.minecraft.item.EnchantedBookItem;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.nbt.NbtList;
-import net.minecraft.text.Text;
-import net.minecraft.text.Text.Serialization;
-
-import java.util.Set;
+import net.minecraft.registry.Registries;
 
 /**
- * 匹配逻辑：
- * 1）仅对“附魔书”进行判断：stack.isOf(Items.ENCHANTED_BOOK)
- * 2）通过 EnchantmentHelper.get(stack) 读取书中的“存储附魔”（StoredEnchantments）
- * 3）对每个附魔获取本地化名称（Text），去掉可能的罗马数字等级后，与配置中的中文名集合做匹配
- * 4）不限制等级，命中任意一个中文名即为 true
+ * 匹配逻辑（适配层）：
+ * 1）把 ItemStack 转换为与游戏无关的 StackModel：物品 id、StoredEnchantments 里的 id/等级、原始 Lore 字符串
+ * 2）交给目标快照中编译好的 TargetMatcher 判断（见 core 模块），规则本身不在这里
+ * 3）Lore 的 Text JSON 解析并规范化后按原始字符串缓存（LoreTextCache）
+ * 4）潜影盒 / 收纳袋内部的物品直接从 NBT 转换，不创建 ItemStack（见 NestedMatch）
+ * 5）evaluate 返回命中的规则下标（-1 为未命中），用于取规则颜色；等级直接取 StoredEnchantments 的 lvl 数值
  *
- * 注：附魔书的真实 NBT 字段为 StoredEnchantments（id / lvl），这是官方通用格式。这里我们不直接读 NBT，
- *     而用 EnchantmentHelper 简化读取。:contentReference[oaicite:7]{index=7}
+ * 注：中文名 -> id 的解析在配置加载及资源/语言重载时完成（见 EnchantNameIndex），热路径上没有字符串拼接。
  */
 public class EnchantMatch {
 
+    private static final String ID_KEY = "id";
+    private static final String LEVEL_KEY = "lvl";
+
+    // 游戏内的 Lore 解码：Text JSON -> 规范化纯文本，带缓存
+    public static final LoreDecoder LORE_DECODER = json -> LoreTextCache.getInstance().get(json, NameNormalizer::normalize);
+
     /**
      * 判断该物品栈是否为目标“附魔书”
      */
-    public static boolean isTargetEnchantedBook(ItemStack stack, Set<String> targetNamesCn) {
-        if (stack == null || !stack.isOf(Items.ENCHANTED_BOOK)) return false;
-        if (targetNamesCn == null || targetNamesCn.isEmpty()) return false;
+    public static boolean isTargetEnchantedBook(ItemStack stack, TargetSnapshot targets) {
+        return evaluate(stack, targets) >= 0;
+    }
+
+    /**
+     * 该物品栈命中的规则下标（见 TargetMatcher#evaluate），不是附魔书或未命中时为 -1
+     */
+    public static int evaluate(ItemStack stack, TargetSnapshot targets) {
+        if (stack == null || !stack.isOf(Items.ENCHANTED_BOOK)) return -1;
+        if (targets == null || targets.getMatcher().isEmpty()) return -1;
+        return targets.getMatcher().evaluate(toModel(stack), LORE_DECODER);
+    }
 
-        // 读取书中所有“存储附魔”及等级（仅限客户端已注册的附魔）
-        var map = EnchantmentHelper.get(stack); // 1.20.4 下仍可用来读取物品的附魔映射
-        if (map != null && !map.isEmpty()) {
-            for (var entry : map.entrySet()) {
-                // 通过附魔对象在当前客户端语言环境下得到“名称 + 等级”的本地化文本
-                Text nameWithLevel = entry.getKey().getName(entry.getValue());
-                String localized = nameWithLevel.getString(); // 例如 “锋利 V”
-                String baseName = stripLevel(localized);      // 例如 “锋利”
+    /**
+     * ItemStack -> StackModel
+     */
+    public static StackModel toModel(ItemStack stack) {
+        String itemId = stack.isOf(Items.ENCHANTED_BOOK)
+                ? StackModel.ENCHANTED_BOOK
+                : Registries.ITEM.getId(stack.getItem()).toString();
+        return toModel(itemId, stack.getNbt());
+    }
 
-                if (targetNamesCn.contains(baseName)) {
-                    return true;
-                }
+    /**
+     * 判断容器物品 NBT 中的一项（{id, Count, tag}）是否为目标附魔书，不创建 ItemStack
+     */
+    public static boolean isTargetEnchantedBook(NbtCompound item, TargetSnapshot targets) {
+        return evaluate(item, targets) >= 0;
+    }
+
+    /**
+     * 容器物品 NBT 中的一项命中的规则下标，-1 为未命中
+     */
+    public static int evaluate(NbtCompound item, TargetSnapshot targets) {
+        if (!StackModel.ENCHANTED_BOOK.equals(item.getString(ID_KEY))) return -1;
+        if (targets == null || targets.getMatcher().isEmpty()) return -1;
+        NbtCompound tag = item.contains("tag", NbtElement.COMPOUND_TYPE) ? item.getCompound("tag") : null;
+        return targets.getMatcher().evaluate(toModel(StackModel.ENCHANTED_BOOK, tag), LORE_DECODER);
+    }
+
+    /**
+     * 物品 id + 物品 NBT（可为 null）-> StackModel
+     */
+    public static StackModel toModel(String itemId, NbtCompound nbt) {
+        if (nbt == null) return StackModel.of(itemId);
+
+        String[] ids = null;
+        int[] levels = null;
+        if (nbt.contains(EnchantedBookItem.STORED_ENCHANTMENTS_KEY, NbtElement.LIST_TYPE)) {
+            NbtList stored = nbt.getList(EnchantedBookItem.STORED_ENCHANTMENTS_KEY, NbtElement.COMPOUND_TYPE);
+            ids = new String[stored.size()];
+            levels = new int[stored.size()];
+            for (int i = 0; i < stored.size(); i++) {
+                NbtCompound ench = stored.getCompound(i);
+                ids[i] = ench.getString(ID_KEY);
+                levels[i] = ench.getInt(LEVEL_KEY);
             }
         }
 
-        // 补充：兼容服务端自定义附魔（通过 Lore 字段展示的名称）
-        NbtCompound nbt = stack.getNbt();
-        if (nbt != null && nbt.contains("display", NbtElement.COMPOUND_TYPE)) {
+        String[] lore = null;
+        if (nbt.contains("display", NbtElement.COMPOUND_TYPE)) {
             NbtCompound display = nbt.getCompound("display");
             if (display.contains("Lore", NbtElement.LIST_TYPE)) {
-                NbtList lore = display.getList("Lore", NbtElement.STRING_TYPE);
-                for (int i = 0; i < lore.size(); i++) {
-                    String json = lore.getString(i);
-                    try {
-                        Text line = Serialization.fromJson(json);
-                        if (line != null) {
-                            String base = stripLevel(line.getString());
-                            if (targetNamesCn.contains(base)) {
-                                return true;
-                            }
-                        }
-                    } catch (Exception ignored) {}
+                NbtList list = display.getList("Lore", NbtElement.STRING_TYPE);
+                lore = new String[list.size()];
+                for (int i = 0; i < list.size(); i++) {
+                    lore[i] = list.getString(i);
                 }
             }
         }
-
-        return false;
-    }
-
-    /**
-     * 去掉中文附魔名后面可能出现的等级（罗马数字或空格）
-     * 例如 “效率 V” -> “效率”
-     */
-    private static String stripLevel(String s) {
-        if (s == null) return "";
-        // 去除末尾的空格与罗马数字/阿拉伯数字
-        return s.replaceAll("\\s+[IVXLCDM0-9]+$", "").trim();
+        return new StackModel(itemId, ids, levels, lore);
     }
-}
\ No newline at end of file
+}
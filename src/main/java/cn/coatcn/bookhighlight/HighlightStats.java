@@ -0,0 +1,153 @@
+package cn.coatcn.bookhighlight;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模组自身开销的统计：
+ * 1）每帧只在重新扫描、批量提交等少数位置取两次 System.nanoTime，逐格路径只累加计数
+ * 2）帧耗时与扫描耗时写入环形缓冲（最近 1024 个样本），查询时才计算 p50/p99
+ * 3）配置重载、保存发生在后台线程，用 LongAdder 计数
+ *
+ * 数据来源：HandledScreenMixin / ContainerHighlighter（客户端线程）、ConfigManager、MatchCache。
+ * 展示：容器界面左上角的可选统计行，以及 /bookhighlight stats 命令。
+ */
+public class HighlightStats {
+
+    private static final int WINDOW = 1024;
+
+    private static final HighlightStats INSTANCE = new HighlightStats();
+
+    public static HighlightStats getInstance() {
+        return INSTANCE;
+    }
+
+    private final RingHistogram frameNanos = new RingHistogram(WINDOW);
+    private final RingHistogram scanNanos = new RingHistogram(WINDOW);
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder saves = new LongAdder();
+
+    // 以下只在客户端线程读写
+    private long frameAccum = 0L;
+    private int frameSlots = 0;
+    private int frameMatches = 0;
+    private long scans = 0L;
+    private long slotsScanned = 0L;
+    private long matchesFound = 0L;
+    private boolean overlay = false;
+
+    private HighlightStats() {}
+
+    // ===== 客户端线程：帧内计时 =====
+
+    public void beginFrame() {
+        frameAccum = 0L;
+        frameSlots = 0;
+        frameMatches = 0;
+    }
+
+    public void addFrameNanos(long nanos) {
+        frameAccum += nanos;
+    }
+
+    public void countSlot(boolean matched) {
+        frameSlots++;
+        if (matched) frameMatches++;
+    }
+
+    public void endFrame() {
+        frameNanos.record(frameAccum);
+    }
+
+    public void recordScan(long nanos, int slots, int matches) {
+        scanNanos.record(nanos);
+        scans++;
+        slotsScanned += slots;
+        matchesFound += matches;
+    }
+
+    // ===== 任意线程：配置事件 =====
+
+    public void countReload() {
+        reloads.increment();
+    }
+
+    public void countSave() {
+        saves.increment();
+    }
+
+    // ===== 读取 =====
+
+    public RingHistogram getFrameNanos() {
+        return frameNanos;
+    }
+
+    public RingHistogram getScanNanos() {
+        return scanNanos;
+    }
+
+    public int getFrameSlots() {
+        return frameSlots;
+    }
+
+    public int getFrameMatches() {
+        return frameMatches;
+    }
+
+    public long getScans() {
+        return scans;
+    }
+
+    public long getSlotsScanned() {
+        return slotsScanned;
+    }
+
+    public long getMatchesFound() {
+        return matchesFound;
+    }
+
+    public long getReloads() {
+        return reloads.sum();
+    }
+
+    public long getSaves() {
+        return saves.sum();
+    }
+
+    /**
+     * 缓存命中率（0~1），还没有查询时返回 0
+     */
+    public double getCacheHitRatio() {
+        MatchCache cache = MatchCache.getInstance();
+        long total = cache.getHits() + cache.getMisses();
+        return total == 0 ? 0.0 : (double) cache.getHits() / total;
+    }
+
+    public boolean isOverlay() {
+        return overlay;
+    }
+
+    public void setOverlay(boolean overlay) {
+        this.overlay = overlay;
+    }
+
+    public void reset() {
+        frameNanos.clear();
+        scanNanos.clear();
+        scans = 0L;
+        slotsScanned = 0L;
+        matchesFound = 0L;
+        reloads.reset();
+        saves.reset();
+        MatchCache.getInstance().resetCounters();
+    }
+
+    /**
+     * 一行摘要，统计行与命令共用
+     */
+    public String summary() {
+        return String.format("BookHighlight 帧 p50 %.1fµs p99 %.1fµs | 扫描 p50 %.1fµs p99 %.1fµs | 本帧 %d 格 %d 命中 | 缓存 %.1f%% | 重载 %d 保存 %d",
+                frameNanos.percentile(50) / 1000.0, frameNanos.percentile(99) / 1000.0,
+                scanNanos.percentile(50) / 1000.0, scanNanos.percentile(99) / 1000.0,
+                frameSlots, frameMatches, getCacheHitRatio() * 100.0, getReloads(), getSaves());
+    }
+}
@@ -0,0 +1,27 @@
+package cn.coatcn.bookhighlight;
+
+/**
+ * 高亮样式：三种样式都只用 GUI 填充四边形，成本相同
+ */
+public enum HighlightStyle {
+    // 半透明整格填充（默认）
+    FILL,
+    // 1 像素边框
+    OUTLINE,
+    // 自上而下渐变到半透明
+    GRADIENT;
+
+    public String id() {
+        return name().toLowerCase();
+    }
+
+    public static HighlightStyle fromString(String s, HighlightStyle fallback) {
+        if (s == null) return fallback;
+        for (HighlightStyle style : values()) {
+            if (style.id().equalsIgnoreCase(s.trim())) {
+                return style;
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,68 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.text.Text;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lore 文本缓存：
+ * 1）以 NBT 中原始的 Lore JSON 字符串为键，缓存解析并规范化后的纯文本，避免每帧重复 Text.Serialization.fromJson
+ * 2）容量有限，按 LRU 淘汰
+ * 3）解析失败的行记为空串，同样缓存，不再重复解析
+ * 4）线程安全：渲染线程与后台求值线程共用
+ */
+public class LoreTextCache {
+
+    private static final int MAX_ENTRIES = 8192;
+
+    private static final LoreTextCache INSTANCE = new LoreTextCache();
+
+    public static LoreTextCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<String, String> entries = new LinkedHashMap<>(512, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private LoreTextCache() {}
+
+    /**
+     * 取 Lore JSON 对应的纯文本（已经过 extractor 处理）
+     */
+    public String get(String json, Function<String, String> extractor) {
+        String text;
+        synchronized (this) {
+            text = entries.get(json);
+        }
+        if (text != null) return text;
+        // 解析放在锁外：多个后台求值线程（见 MatchPipeline）不会排队等同一把锁；偶尔重复解析同一行无妨
+        text = parse(json, extractor);
+        synchronized (this) {
+            entries.put(json, text);
+        }
+        return text;
+    }
+
+    private static String parse(String json, Function<String, String> extractor) {
+        try {
+            Text line = Text.Serialization.fromJson(json);
+            return line != null ? extractor.apply(line.getString()) : "";
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
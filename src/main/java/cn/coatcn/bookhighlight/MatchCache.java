@@ -0,0 +1,212 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 匹配结果缓存：
+ * 1）以 ItemStack 对象身份为键（ItemStack 未重写 equals/hashCode），并记录求值时的 Item 与 NBT 引用，任一变化即视为失效
+ * 2）每条结果带上配置代数（generation），目标集合变化后旧结果自动作废；目标变更时还会整体清空
+ * 3）容量有限，按访问顺序淘汰最久未用的条目
+ * 4）缓存的是打包的结果：低 16 位为命中数量（附魔书为 0/1，容器物品为内部命中数，见 NestedMatch），
+ *    高 16 位为命中规则下标 + 1（0 表示没有规则），绘制时据此取规则颜色
+ *
+ * 5）开启后台求值时，渲染线程只用 peek 查缓存，未命中的交给 MatchPipeline，算完后用 put 写回
+ *
+ * 注：只在渲染线程调用，不做同步。
+ */
+public class MatchCache {
+
+    private static final int MAX_ENTRIES = 4096;
+    private static final int COUNT_MASK = 0xFFFF;
+
+    private static final MatchCache INSTANCE = new MatchCache();
+
+    public static MatchCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<ItemStack, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ItemStack, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private long hits = 0L;
+    private long misses = 0L;
+
+    private MatchCache() {
+        // 目标变化后旧结果全部作废，直接释放；generation 检查仍作为兜底
+        ConfigManager.getInstance().addTargetsListener((oldTargets, newTargets) -> clear());
+    }
+
+    public static int pack(int count, int rule) {
+        return ((rule + 1) << 16) | Math.min(count, COUNT_MASK);
+    }
+
+    public static int countOf(int result) {
+        return result & COUNT_MASK;
+    }
+
+    /**
+     * 命中的规则下标，-1 表示没有
+     */
+    public static int ruleOf(int result) {
+        return (result >>> 16) - 1;
+    }
+
+    /**
+     * 带缓存的 {@link EnchantMatch#isTargetEnchantedBook}：同一个未变化的物品栈每帧只需一次查表
+     */
+    public boolean isTarget(ItemStack stack) {
+        return matchCount(stack) > 0;
+    }
+
+    /**
+     * 命中数量：目标附魔书本身为 1；开启深入扫描时，潜影盒 / 收纳袋为内部命中的附魔书数量；其他为 0
+     */
+    public int matchCount(ItemStack stack) {
+        return countOf(match(stack));
+    }
+
+    /**
+     * 打包的匹配结果（数量 + 规则），用 countOf / ruleOf 拆开
+     */
+    public int match(ItemStack stack) {
+        // 同一份快照里取代数与名称集合，保证二者一致
+        return match(stack, ConfigManager.getInstance().getSnapshot());
+    }
+
+    // 指定快照的版本，供基准测试在不加载配置文件的情况下使用
+    boolean isTarget(ItemStack stack, TargetSnapshot snapshot) {
+        return matchCount(stack, snapshot) > 0;
+    }
+
+    int matchCount(ItemStack stack, TargetSnapshot snapshot) {
+        return countOf(match(stack, snapshot));
+    }
+
+    int match(ItemStack stack, TargetSnapshot snapshot) {
+        if (!isCandidate(stack, snapshot)) return 0;
+        boolean book = stack.isOf(Items.ENCHANTED_BOOK);
+        long gen = snapshot.getGeneration();
+        Item item = stack.getItem();
+        NbtCompound nbt = stack.getNbt();
+
+        Entry e = entries.get(stack);
+        if (e != null && e.generation == gen && e.item == item && e.nbt == nbt) {
+            hits++;
+            return e.result;
+        }
+
+        misses++;
+        int result;
+        if (!book) {
+            result = NestedMatch.getInstance().match(stack, snapshot);
+        } else {
+            int rule = misses % MatchEvaluationEvent.SAMPLE_INTERVAL == 0
+                    ? evaluateSampled(stack, snapshot)
+                    : EnchantMatch.evaluate(stack, snapshot);
+            result = rule >= 0 ? pack(1, rule) : 0;
+        }
+        if (e == null) {
+            entries.put(stack, new Entry(gen, item, nbt, result));
+        } else {
+            e.generation = gen;
+            e.item = item;
+            e.nbt = nbt;
+            e.result = result;
+        }
+        return result;
+    }
+
+    /**
+     * 只查缓存、不求值：未缓存或已过期时返回 -1；不可能命中的物品栈直接返回 0（供后台求值流水线使用，见 MatchPipeline）
+     */
+    public int peek(ItemStack stack, TargetSnapshot snapshot) {
+        if (!isCandidate(stack, snapshot)) return 0;
+        Entry e = entries.get(stack);
+        if (e != null && e.generation == snapshot.getGeneration() && e.item == stack.getItem() && e.nbt == stack.getNbt()) {
+            hits++;
+            return e.result;
+        }
+        misses++;
+        return -1;
+    }
+
+    /**
+     * 写入后台算出的结果；nbt 为提交求值时物品栈的 NBT 引用，物品栈此后换了 NBT 时这条结果自然失效
+     */
+    public void put(ItemStack stack, NbtCompound nbt, TargetSnapshot snapshot, int result) {
+        long gen = snapshot.getGeneration();
+        Entry e = entries.get(stack);
+        if (e == null) {
+            entries.put(stack, new Entry(gen, stack.getItem(), nbt, result));
+        } else {
+            e.generation = gen;
+            e.item = stack.getItem();
+            e.nbt = nbt;
+            e.result = result;
+        }
+    }
+
+    // 附魔书，或开启深入扫描时带 NBT 的物品（可能是潜影盒 / 收纳袋）；其余物品结果恒为 0，不进缓存
+    private static boolean isCandidate(ItemStack stack, TargetSnapshot snapshot) {
+        if (stack == null || stack.isEmpty()) return false;
+        return stack.isOf(Items.ENCHANTED_BOOK) || (snapshot.isNestedScan() && stack.hasNbt());
+    }
+
+    // 被抽中的一次求值：包上 JFR 事件（未开启录制时 shouldCommit() 为 false，不会提交）
+    private static int evaluateSampled(ItemStack stack, TargetSnapshot snapshot) {
+        MatchEvaluationEvent event = new MatchEvaluationEvent();
+        event.begin();
+        int result = EnchantMatch.evaluate(stack, snapshot);
+        if (event.shouldCommit()) {
+            event.matched = result >= 0;
+            event.sampleInterval = MatchEvaluationEvent.SAMPLE_INTERVAL;
+            event.commit();
+        }
+        return result;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void resetCounters() {
+        hits = 0L;
+        misses = 0L;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        long generation;
+        Item item;
+        NbtCompound nbt;
+        int result;
+
+        Entry(long generation, Item item, NbtCompound nbt, int result) {
+            this.generation = generation;
+            this.item = item;
+            this.nbt = nbt;
+            this.result = result;
+        }
+    }
+}
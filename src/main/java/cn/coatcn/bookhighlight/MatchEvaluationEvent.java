@@ -0,0 +1,30 @@
+package cn.coatcn.bookhighlight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次未命中缓存的附魔书匹配（抽样，每 SAMPLE_INTERVAL 次未命中记录一次）。
+ * 默认关闭；未被抽中时连事件对象都不会创建。
+ */
+@Name("cn.coatcn.bookhighlight.MatchEvaluation")
+@Label("Match Evaluation (sampled)")
+@Category({"Book Highlight"})
+@Description("Uncached enchanted book evaluation, sampled once every 64 cache misses")
+@Enabled(false)
+@StackTrace(false)
+public class MatchEvaluationEvent extends Event {
+
+    public static final int SAMPLE_INTERVAL = 64;
+
+    @Label("Matched")
+    public boolean matched;
+
+    @Label("Sample Interval")
+    public int sampleInterval;
+}
@@ -0,0 +1,221 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.StackModel;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后台求值流水线（配置项 matchThreads）：
+ * 1）渲染线程遇到缓存未命中的物品栈时，只把它转换成不可变的输入（附魔书为 StackModel，容器物品为内部物品列表的副本），
+ *    攒成一批（最多 BATCH_SIZE 格）交给固定大小的后台线程池；后台线程不接触 ItemStack 与界面
+ * 2）后台线程用提交时的目标快照求值：TargetMatcher 没有共享的可变状态，Lore 的 JSON 解析与规范化走线程安全的 LoreTextCache
+ * 3）一批结果全部写好后才放进提交方给出的并发队列，之后不再修改；渲染线程在下一帧开始时取回（见 ContainerHighlighter），
+ *    核对物品栈引用与配置代数后写入位图与缓存，绘制钩子只查位图
+ * 4）线程数：-1 按 CPU 核数自动决定（核数 / 4，1 ~ MAX_AUTO_THREADS 个），0 为不使用后台线程；
+ *    线程池在第一次使用时按当时的配置创建，之后修改线程数需重启游戏（改为 0 立即生效）
+ */
+public class MatchPipeline {
+
+    public static final int BATCH_SIZE = 16;
+    private static final int MAX_AUTO_THREADS = 4;
+
+    private static final MatchPipeline INSTANCE = new MatchPipeline();
+
+    public static MatchPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private volatile ExecutorService executor;
+
+    private MatchPipeline() {}
+
+    /**
+     * 是否把未命中缓存的求值交给后台线程
+     */
+    public boolean isEnabled() {
+        return ConfigManager.getInstance().getMatchThreads() != 0;
+    }
+
+    /**
+     * 渲染线程：提交一批求值，完成后把这一批放进 completed
+     */
+    public void submit(Batch batch, Queue<Batch> completed) {
+        executor().execute(() -> {
+            batch.run(evaluations);
+            completed.add(batch);
+        });
+    }
+
+    private ExecutorService executor() {
+        ExecutorService e = executor;
+        if (e == null) {
+            synchronized (this) {
+                e = executor;
+                if (e == null) {
+                    e = executor = createExecutor(threadCount(ConfigManager.getInstance().getMatchThreads()));
+                }
+            }
+        }
+        return e;
+    }
+
+    static int threadCount(int configured) {
+        if (configured > 0) return configured;
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(MAX_AUTO_THREADS, cores / 4));
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "BookHighlight-Match-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 一批待求值的格子：
+     * 1）渲染线程用 add 填入，submit 之后不再修改输入
+     * 2）后台线程求值并写入 results，随后整批放进完成队列（队列保证渲染线程能看到完整的结果）
+     * 3）ItemStack 与 NBT 引用只用于渲染线程取回结果时的身份比对，后台线程不读取
+     */
+    public static final class Batch {
+
+        private final TargetSnapshot snapshot;
+        private int size;
+        private int[] slots = new int[BATCH_SIZE];
+        private ItemStack[] stacks = new ItemStack[BATCH_SIZE];
+        private NbtCompound[] nbts = new NbtCompound[BATCH_SIZE];
+        private Object[] inputs = new Object[BATCH_SIZE];
+        private int[] results;
+
+        public Batch(TargetSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * 渲染线程：加入一个 MatchCache 未命中的格子。
+         * 不需要后台求值时直接返回打包的结果（不可能命中，或容器内容已在 NestedMatch 中缓存），已加入本批时返回 -1
+         */
+        public int add(int slot, ItemStack stack) {
+            Object input;
+            if (stack.isOf(Items.ENCHANTED_BOOK)) {
+                if (snapshot.getMatcher().isEmpty()) return 0;
+                input = EnchantMatch.toModel(stack);
+            } else {
+                NbtList items = snapshot.isNestedScan() ? NestedMatch.contentsOf(stack.getNbt()) : null;
+                if (items == null) return 0;
+                int cached = NestedMatch.getInstance().peek(items, snapshot);
+                if (cached >= 0) {
+                    MatchCache.getInstance().put(stack, stack.getNbt(), snapshot, cached);
+                    return cached;
+                }
+                // 副本：原物品栈之后即使被原地修改，后台线程看到的内容也不变
+                input = items.copy();
+            }
+            if (size == slots.length) {
+                int capacity = size * 2;
+                slots = Arrays.copyOf(slots, capacity);
+                stacks = Arrays.copyOf(stacks, capacity);
+                nbts = Arrays.copyOf(nbts, capacity);
+                inputs = Arrays.copyOf(inputs, capacity);
+            }
+            slots[size] = slot;
+            stacks[size] = stack;
+            nbts[size] = stack.getNbt();
+            inputs[size] = input;
+            size++;
+            return -1;
+        }
+
+        // 后台线程：逐项求值；个别物品出错时记为未命中，整批照常发回，避免格子一直等待
+        void run(AtomicLong evaluations) {
+            int[] out = new int[size];
+            for (int i = 0; i < size; i++) {
+                try {
+                    out[i] = evaluations.incrementAndGet() % MatchEvaluationEvent.SAMPLE_INTERVAL == 0
+                            ? evaluateSampled(inputs[i], snapshot)
+                            : evaluate(inputs[i], snapshot);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    out[i] = 0;
+                }
+            }
+            results = out;
+        }
+
+        private static int evaluate(Object input, TargetSnapshot snapshot) {
+            if (input instanceof StackModel model) {
+                int rule = snapshot.getMatcher().evaluate(model, EnchantMatch.LORE_DECODER);
+                return rule >= 0 ? MatchCache.pack(1, rule) : 0;
+            }
+            return NestedMatch.evaluate((NbtList) input, snapshot);
+        }
+
+        private static int evaluateSampled(Object input, TargetSnapshot snapshot) {
+            MatchEvaluationEvent event = new MatchEvaluationEvent();
+            event.begin();
+            int result = evaluate(input, snapshot);
+            if (event.shouldCommit()) {
+                event.matched = MatchCache.countOf(result) > 0;
+                event.sampleInterval = MatchEvaluationEvent.SAMPLE_INTERVAL;
+                event.commit();
+            }
+            return result;
+        }
+
+        /**
+         * 渲染线程：把本批结果写入 MatchCache 与 NestedMatch，之后同样的物品栈 / 容器内容直接命中缓存
+         */
+        public void publishToCaches() {
+            for (int i = 0; i < size; i++) {
+                MatchCache.getInstance().put(stacks[i], nbts[i], snapshot, results[i]);
+                if (inputs[i] instanceof NbtList items) {
+                    NestedMatch.getInstance().put(items, snapshot, results[i]);
+                }
+            }
+        }
+
+        public TargetSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public long getGeneration() {
+            return snapshot.getGeneration();
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getSlot(int i) {
+            return slots[i];
+        }
+
+        public ItemStack getStack(int i) {
+            return stacks[i];
+        }
+
+        /**
+         * 打包的结果（见 MatchCache#pack），仅在从完成队列取回之后有效
+         */
+        public int getResult(int i) {
+            return results[i];
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cn.coatcn.bookhighlight;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 容器物品的深入匹配：
+ * 1）潜影盒读取 BlockEntityTag.Items，收纳袋读取 Items；收纳袋可以互相嵌套，最多向下 MAX_DEPTH 层
+ * 2）返回内部命中的附魔书数量，用于高亮容器物品并显示数量角标；颜色取内部命中的优先级最高的规则
+ * 3）结果按内部物品列表的内容（NbtList 的 equals/hashCode）缓存：同样内容的潜影盒在不同帧、不同界面、
+ *    甚至重新下发后的新物品栈上都只完整遍历一次；每条结果带配置代数，目标变化后作废
+ * 4）静态的 evaluate 不经过缓存，供后台线程求值；结果由渲染线程用 put 写回
+ *
+ * 注：除 evaluate 外只在渲染线程调用，不做同步。
+ */
+public class NestedMatch {
+
+    private static final int MAX_ENTRIES = 2048;
+    private static final int MAX_DEPTH = 4;
+
+    private static final String BLOCK_ENTITY_KEY = "BlockEntityTag";
+    private static final String ITEMS_KEY = "Items";
+
+    private static final NestedMatch INSTANCE = new NestedMatch();
+
+    public static NestedMatch getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<NbtList, Entry> entries = new LinkedHashMap<>(128, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<NbtList, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private NestedMatch() {
+        ConfigManager.getInstance().addTargetsListener((oldTargets, newTargets) -> clear());
+    }
+
+    /**
+     * 物品内部的物品列表；不是容器物品（或为空）时返回 null
+     */
+    public static NbtList contentsOf(NbtCompound nbt) {
+        if (nbt == null) return null;
+        NbtList items = null;
+        if (nbt.contains(BLOCK_ENTITY_KEY, NbtElement.COMPOUND_TYPE)) {
+            NbtCompound blockEntity = nbt.getCompound(BLOCK_ENTITY_KEY);
+            if (blockEntity.contains(ITEMS_KEY, NbtElement.LIST_TYPE)) {
+                items = blockEntity.getList(ITEMS_KEY, NbtElement.COMPOUND_TYPE);
+            }
+        } else if (nbt.contains(ITEMS_KEY, NbtElement.LIST_TYPE)) {
+            items = nbt.getList(ITEMS_KEY, NbtElement.COMPOUND_TYPE);
+        }
+        return items == null || items.isEmpty() ? null : items;
+    }
+
+    /**
+     * 物品栈内部命中的附魔书数量（非容器物品为 0）
+     */
+    public int count(ItemStack stack, TargetSnapshot snapshot) {
+        return MatchCache.countOf(match(stack, snapshot));
+    }
+
+    /**
+     * 打包的匹配结果（见 MatchCache#pack）：内部命中数量 + 其中优先级最高的规则
+     */
+    public int match(ItemStack stack, TargetSnapshot snapshot) {
+        NbtList items = contentsOf(stack.getNbt());
+        return items == null ? 0 : match(items, snapshot, 1);
+    }
+
+    /**
+     * 只查缓存、不求值：没有当前代数的结果时返回 -1
+     */
+    public int peek(NbtList items, TargetSnapshot snapshot) {
+        Entry e = entries.get(items);
+        return e != null && e.generation == snapshot.getGeneration() ? e.result : -1;
+    }
+
+    /**
+     * 写入后台算出的结果；items 须是之后不会再被修改的副本（直接作为键）
+     */
+    public void put(NbtList items, TargetSnapshot snapshot, int result) {
+        entries.put(items, new Entry(snapshot.getGeneration(), result));
+    }
+
+    /**
+     * 不读写缓存的求值，可在任意线程调用（见 MatchPipeline）；items 不能同时被其他线程修改
+     */
+    public static int evaluate(NbtList items, TargetSnapshot snapshot) {
+        return scan(items, snapshot, 1, null);
+    }
+
+    private int match(NbtList items, TargetSnapshot snapshot, int depth) {
+        int cached = peek(items, snapshot);
+        if (cached >= 0) return cached;
+        int result = scan(items, snapshot, depth, this);
+        // 键是内容的副本：原列表之后若被原地修改，也不会破坏哈希表
+        entries.put(items.copy(), new Entry(snapshot.getGeneration(), result));
+        return result;
+    }
+
+    // 遍历一层物品列表；cache 为 null 时内层列表也不走缓存
+    private static int scan(NbtList items, TargetSnapshot snapshot, int depth, NestedMatch cache) {
+        int n = 0;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < items.size(); i++) {
+            NbtCompound item = items.getCompound(i);
+            int rule = EnchantMatch.evaluate(item, snapshot);
+            if (rule >= 0) {
+                n++;
+                best = Math.min(best, rule);
+            } else if (depth < MAX_DEPTH && item.contains("tag", NbtElement.COMPOUND_TYPE)) {
+                NbtList inner = contentsOf(item.getCompound("tag"));
+                if (inner != null) {
+                    int r = cache != null
+                            ? cache.match(inner, snapshot, depth + 1)
+                            : scan(inner, snapshot, depth + 1, null);
+                    n += MatchCache.countOf(r);
+                    if (MatchCache.ruleOf(r) >= 0) best = Math.min(best, MatchCache.ruleOf(r));
+                }
+            }
+        }
+        return MatchCache.pack(n, best == Integer.MAX_VALUE ? -1 : best);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        final long generation;
+        final int result;
+
+        Entry(long generation, int result) {
+            this.generation = generation;
+            this.result = result;
+        }
+    }
+}
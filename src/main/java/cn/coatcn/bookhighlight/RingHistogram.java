@@ -0,0 +1,47 @@
+package cn.coatcn.bookhighlight;
+
+import java.util.Arrays;
+
+/**
+ * 滑动窗口样本（环形缓冲）：
+ * 1）记录时只写一个 long、移动下标，不分配对象、不加锁
+ * 2）只保留最近 capacity 个样本，读取百分位时才复制并排序
+ *
+ * 注：写入与读取都在客户端线程，不做同步。
+ */
+public class RingHistogram {
+
+    private final long[] samples;
+    private int next = 0;
+    private int count = 0;
+
+    public RingHistogram(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public void record(long value) {
+        samples[next] = value;
+        next = next + 1 == samples.length ? 0 : next + 1;
+        if (count < samples.length) count++;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * 窗口内的第 p 百分位（0~100），没有样本时返回 0
+     */
+    public long percentile(double p) {
+        if (count == 0) return 0L;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, idx))];
+    }
+
+    public void clear() {
+        next = 0;
+        count = 0;
+    }
+}
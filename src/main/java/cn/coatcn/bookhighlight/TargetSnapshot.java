@@ -0,0 +1,118 @@
+package cn.coatcn.bookhighlight;
+
+import cn.coatcn.bookhighlight.core.EnchantNameIndex;
+import cn.coatcn.bookhighlight.core.HighlightRule;
+import cn.coatcn.bookhighlight.core.TargetMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 目标配置快照（不可变）：
+ * 1）每次目标集合或附魔名称索引变化时由 ConfigManager 整体重建，并通过 volatile 引用发布
+ * 2）generation 单调递增，缓存据此判断结果是否过期
+ * 3）可见的中文名预先编译为 TargetMatcher（规范化、raw id 位图、Lore 多模式匹配器），
+ *    渲染线程读取时无锁、无分配
+ * 4）是否深入潜影盒 / 收纳袋内部匹配也记录在快照里，开关变化同样会换代
+ * 5）规则（HighlightRule，各自的颜色与等级条件）排在前面，普通目标各自作为一条使用全局颜色的规则排在最后，
+ *    一起编译进同一张决策表
+ * 6）普通目标可以带等级条件（levels），比较的是存储附魔里的数值等级，不从本地化文本里解析
+ */
+public final class TargetSnapshot {
+
+    public static final TargetSnapshot EMPTY = ofTargets(0L, Collections.emptyMap(), EnchantNameIndex.EMPTY, false);
+
+    private final long generation;
+    private final List<HighlightRule> rules;
+    private final Map<String, Boolean> targets;
+    private final Map<String, HighlightRule.Condition> levels;
+    private final Set<String> visibleNames;
+    private final EnchantNameIndex index;
+    private final TargetMatcher matcher;
+    private final boolean nestedScan;
+
+    TargetSnapshot(long generation, List<HighlightRule> rules, Map<String, Boolean> targets,
+                   Map<String, HighlightRule.Condition> levels, EnchantNameIndex index, boolean nestedScan) {
+        this.generation = generation;
+        this.rules = List.copyOf(rules);
+        this.index = index;
+        this.nestedScan = nestedScan;
+        Map<String, Boolean> copy = new LinkedHashMap<>(targets);
+        Set<String> visible = new LinkedHashSet<>();
+        for (var entry : copy.entrySet()) {
+            if (entry.getValue()) {
+                visible.add(entry.getKey());
+            }
+        }
+        this.targets = Collections.unmodifiableMap(copy);
+        this.levels = Collections.unmodifiableMap(new LinkedHashMap<>(levels));
+        this.visibleNames = Collections.unmodifiableSet(visible);
+        List<HighlightRule> compiled = new ArrayList<>(this.rules);
+        for (String name : visible) {
+            HighlightRule.Condition level = levels.get(name);
+            compiled.add(level == null
+                    ? HighlightRule.ofName(name)
+                    : new HighlightRule(name, HighlightRule.NO_COLOR, List.of(level)));
+        }
+        this.matcher = compiled.isEmpty() ? TargetMatcher.EMPTY : new TargetMatcher(compiled, index);
+    }
+
+    /**
+     * 只有普通目标（无规则、无等级条件）的快照，供 EMPTY 与基准测试使用
+     */
+    static TargetSnapshot ofTargets(long generation, Map<String, Boolean> targets, EnchantNameIndex index, boolean nestedScan) {
+        return new TargetSnapshot(generation, List.of(), targets, Map.of(), index, nestedScan);
+    }
+
+    public boolean isNestedScan() {
+        return nestedScan;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 全部目标（名称 -> 是否显示），保持配置文件中的顺序
+     */
+    public Map<String, Boolean> getTargets() {
+        return targets;
+    }
+
+    /**
+     * 带等级条件的目标（名称 -> 条件）；不在其中的目标不限等级
+     */
+    public Map<String, HighlightRule.Condition> getLevels() {
+        return levels;
+    }
+
+    /**
+     * 带颜色 / 等级条件的规则（不含由普通目标生成的规则）
+     */
+    public List<HighlightRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * 当前需要高亮的中文附魔名
+     */
+    public Set<String> getVisibleNames() {
+        return visibleNames;
+    }
+
+    /**
+     * 由可见目标编译出的匹配器
+     */
+    public TargetMatcher getMatcher() {
+        return matcher;
+    }
+
+    public EnchantNameIndex getIndex() {
+        return index;
+    }
+}